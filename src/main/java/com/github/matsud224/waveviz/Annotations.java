@@ -5,11 +5,13 @@ import java.util.ArrayList;
 public class Annotations implements TimeSeries {
     private final ArrayList<String> path;
     private final String type;
+    private final int width;
     private final ArrayList<Annotation> annotationList = new ArrayList<>();
 
     public Annotations(ArrayList<String> path, String type, int width) {
         this.path = path;
         this.type = type;
+        this.width = width;
     }
 
     @Override
@@ -22,22 +24,39 @@ public class Annotations implements TimeSeries {
         return type;
     }
 
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
     public void addAnnotation(Annotation annotation) {
         annotationList.add(annotation);
     }
 
     @Override
-    public TimeSpan getValue(int time) {
+    public ValueWithSpan<String> getValue(long time) {
+        long gapStart = getStartTime();
+        long gapEnd = getEndTime();
+        for (var annotation : annotationList) {
+            var span = annotation.getTimeRange();
+            if (span.getStartTime() <= time && time <= span.getEndTime())
+                return new ValueWithSpan<>(annotation.getText(), span);
+            if (span.getEndTime() < time)
+                gapStart = Math.max(gapStart, span.getEndTime() + 1);
+            else
+                gapEnd = Math.min(gapEnd, span.getStartTime() - 1);
+        }
+        return new ValueWithSpan<>(null, new TimeSpan(gapStart, gapEnd));
     }
 
     @Override
-    public int getStartTime() {
-        return annotationList.stream().mapToInt(x -> x.getTimeRange().getStartTime()).min().orElse(0);
+    public long getStartTime() {
+        return annotationList.stream().mapToLong(x -> x.getTimeRange().getStartTime()).min().orElse(0);
     }
 
     @Override
-    public int getEndTime() {
-        return annotationList.stream().mapToInt(x -> x.getTimeRange().getEndTime()).max().orElse(0);
+    public long getEndTime() {
+        return annotationList.stream().mapToLong(x -> x.getTimeRange().getEndTime()).max().orElse(0);
     }
 
     @Override
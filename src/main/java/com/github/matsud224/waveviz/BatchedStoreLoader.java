@@ -0,0 +1,89 @@
+package com.github.matsud224.waveviz;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Fills in stores of a dump loaded on demand on a background thread. Stores requested while a
+// batch is being loaded are collected and loaded together in the next batch.
+abstract class BatchedStoreLoader implements ValueChangeStore.Loader {
+    private final String name;
+    private final ValueChangeStore[] stores;
+    private final Runnable signalsLoadedListener;
+    private final ExecutorService executor;
+    private final ArrayList<Integer> pending = new ArrayList<>();
+    private boolean closed = false;
+
+    protected BatchedStoreLoader(String name, ValueChangeStore[] stores, Runnable signalsLoadedListener) {
+        this.name = name;
+        this.stores = stores;
+        this.signalsLoadedListener = signalsLoadedListener;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "Signal loader for " + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Appends the changes of the stores selected by wanted.
+    protected abstract void load(boolean[] wanted) throws Exception;
+
+    // Called on the loader thread once the last batch has been loaded.
+    protected void release() throws Exception {
+    }
+
+    // Defers loading of every store to this loader.
+    void attach() {
+        for (int i = 0; i < stores.length; i++)
+            stores[i].deferLoading(this, i);
+    }
+
+    @Override
+    public synchronized void request(int storeIndex) {
+        if (closed) {
+            stores[storeIndex].markLoaded();
+            return;
+        }
+        pending.add(storeIndex);
+        if (pending.size() == 1)
+            executor.execute(this::loadPending);
+    }
+
+    private void loadPending() {
+        int[] batch;
+        synchronized (this) {
+            batch = pending.stream().mapToInt(Integer::intValue).toArray();
+            pending.clear();
+        }
+        var wanted = new boolean[stores.length];
+        for (var storeIndex : batch)
+            wanted[storeIndex] = true;
+
+        try {
+            load(wanted);
+        } catch (Exception e) {
+            System.out.printf("Failed to load signals of %s: %s\n", name, e.getMessage());
+        } finally {
+            for (var storeIndex : batch)
+                stores[storeIndex].markLoaded();
+        }
+        if (signalsLoadedListener != null)
+            signalsLoadedListener.run();
+    }
+
+    // A batch already queued is still loaded, so that nobody waits forever on its stores.
+    @Override
+    public synchronized void close() {
+        if (closed)
+            return;
+        closed = true;
+        executor.execute(() -> {
+            try {
+                release();
+            } catch (Exception e) {
+                System.out.printf("Failed to close %s: %s\n", name, e.getMessage());
+            }
+        });
+        executor.shutdown();
+    }
+}
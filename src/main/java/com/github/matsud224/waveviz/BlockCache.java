@@ -0,0 +1,42 @@
+package com.github.matsud224.waveviz;
+
+import java.util.LinkedHashMap;
+
+// Least recently used cache of decompressed blocks, shared by all compressed stores, bounded by
+// an estimate of the bytes the blocks take on the heap.
+final class BlockCache {
+    private static final long DEFAULT_CAPACITY = 64L << 20;
+    private static final BlockCache shared = new BlockCache(DEFAULT_CAPACITY);
+
+    interface Entry {
+        long estimatedSize();
+    }
+
+    private final long capacity;
+    private long size = 0;
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+    private BlockCache(long capacity) {
+        this.capacity = capacity;
+    }
+
+    static BlockCache shared() {
+        return shared;
+    }
+
+    synchronized Entry get(long key) {
+        return entries.get(key);
+    }
+
+    synchronized void put(long key, Entry entry) {
+        var previous = entries.put(key, entry);
+        if (previous != null)
+            size -= previous.estimatedSize();
+        size += entry.estimatedSize();
+        var iterator = entries.values().iterator();
+        while (size > capacity && entries.size() > 1) {
+            size -= iterator.next().estimatedSize();
+            iterator.remove();
+        }
+    }
+}
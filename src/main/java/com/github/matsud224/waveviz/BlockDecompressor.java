@@ -0,0 +1,137 @@
+package com.github.matsud224.waveviz;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+// Raw block decompressors used by FST files. The uncompressed length is always known in advance.
+final class BlockDecompressor {
+    private BlockDecompressor() {
+    }
+
+    static byte[] zlib(byte[] input, int offset, int length, int uncompressedLength) throws IOException {
+        var inflater = new Inflater();
+        try {
+            inflater.setInput(input, offset, length);
+            var output = new byte[uncompressedLength];
+            int n = 0;
+            while (n < uncompressedLength && !inflater.finished()) {
+                int inflated = inflater.inflate(output, n, uncompressedLength - n);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    break;
+                n += inflated;
+            }
+            if (n != uncompressedLength)
+                throw new IOException("truncated zlib block");
+            return output;
+        } catch (DataFormatException e) {
+            throw new IOException("broken zlib block: " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+    }
+
+    static byte[] lz4(byte[] input, int offset, int length, int uncompressedLength) throws IOException {
+        var output = new byte[uncompressedLength];
+        int ip = offset;
+        int end = offset + length;
+        int op = 0;
+        try {
+            while (ip < end) {
+                int token = input[ip++] & 0xff;
+                int literalLength = token >>> 4;
+                if (literalLength == 15) {
+                    int b;
+                    do {
+                        b = input[ip++] & 0xff;
+                        literalLength += b;
+                    } while (b == 255);
+                }
+                System.arraycopy(input, ip, output, op, literalLength);
+                ip += literalLength;
+                op += literalLength;
+                if (ip >= end)
+                    break;
+
+                int matchOffset = (input[ip] & 0xff) | (input[ip + 1] & 0xff) << 8;
+                ip += 2;
+                int matchLength = token & 15;
+                if (matchLength == 15) {
+                    int b;
+                    do {
+                        b = input[ip++] & 0xff;
+                        matchLength += b;
+                    } while (b == 255);
+                }
+                matchLength += 4;
+                copyMatch(output, op, op - matchOffset, matchLength);
+                op += matchLength;
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("broken lz4 block");
+        }
+        if (op != uncompressedLength)
+            throw new IOException("truncated lz4 block");
+        return output;
+    }
+
+    static byte[] fastLz(byte[] input, int offset, int length, int uncompressedLength) throws IOException {
+        final int maxDistance = 8191;
+        var output = new byte[uncompressedLength];
+        int ip = offset;
+        int end = offset + length;
+        int op = 0;
+        int level = ((input[ip] & 0xff) >>> 5) + 1;
+        int ctrl = input[ip++] & 31;
+        try {
+            while (true) {
+                if (ctrl >= 32) {
+                    int len = (ctrl >>> 5) - 1;
+                    int distance = (ctrl & 31) << 8;
+                    if (level == 1) {
+                        if (len == 6)
+                            len += input[ip++] & 0xff;
+                        distance += input[ip++] & 0xff;
+                    } else {
+                        if (len == 6) {
+                            int b;
+                            do {
+                                b = input[ip++] & 0xff;
+                                len += b;
+                            } while (b == 255);
+                        }
+                        int b = input[ip++] & 0xff;
+                        distance += b;
+                        if (b == 255 && (ctrl & 31) == 31) {
+                            distance = ((input[ip] & 0xff) << 8 | (input[ip + 1] & 0xff)) + maxDistance;
+                            ip += 2;
+                        }
+                    }
+                    copyMatch(output, op, op - distance - 1, len + 3);
+                    op += len + 3;
+                } else {
+                    int literalLength = ctrl + 1;
+                    System.arraycopy(input, ip, output, op, literalLength);
+                    ip += literalLength;
+                    op += literalLength;
+                }
+                if (ip >= end)
+                    break;
+                ctrl = input[ip++] & 0xff;
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("broken fastlz block");
+        }
+        if (op != uncompressedLength)
+            throw new IOException("truncated fastlz block");
+        return output;
+    }
+
+    // Byte by byte, since the source may overlap the bytes being written.
+    private static void copyMatch(byte[] output, int to, int from, int length) throws IOException {
+        if (from < 0)
+            throw new IOException("match offset is out of range");
+        for (int i = 0; i < length; i++)
+            output[to + i] = output[from + i];
+    }
+}
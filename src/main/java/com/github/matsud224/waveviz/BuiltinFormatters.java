@@ -0,0 +1,172 @@
+package com.github.matsud224.waveviz;
+
+import java.math.BigInteger;
+import java.util.Map;
+
+// Display formats that need no Ruby. They read packed vectors directly and handle any width. Bits
+// that are x or z make the digits they fall into x or z (X or Z if only some of their bits are),
+// while a decimal number is x, or z if all bits are z. Values that are not binary strings are
+// shown as x, like the Ruby formatters these replace did.
+public final class BuiltinFormatters {
+    public static final ValueFormatter BINARY = new ValueFormatter() {
+        @Override
+        public String format(String value) {
+            return value;
+        }
+
+        @Override
+        public String format(ValueSpan span) {
+            return span.getValue();
+        }
+    };
+    public static final ValueFormatter OCTAL = new RadixFormatter(3);
+    public static final ValueFormatter DECIMAL = new BitsFormatter() {
+        @Override
+        String formatBits(CharSequence bits) {
+            return formatDecimal(bits);
+        }
+    };
+    public static final ValueFormatter HEXADECIMAL = new RadixFormatter(4);
+    public static final ValueFormatter POPCNT = new BitsFormatter() {
+        @Override
+        String formatBits(CharSequence bits) {
+            return formatPopCount(bits);
+        }
+
+        @Override
+        public String format(ValueSpan span) {
+            return span.isPacked() ? Integer.toString(span.getPackedValue().popCount()) : format(span.getValue());
+        }
+    };
+
+    private BuiltinFormatters() {
+    }
+
+    static void registerAll(Map<String, ValueFormatter> formatters) {
+        formatters.put("Binary", BINARY);
+        formatters.put("Octal", OCTAL);
+        formatters.put("Decimal", DECIMAL);
+        formatters.put("Hexadecimal", HEXADECIMAL);
+        formatters.put("Popcnt", POPCNT);
+    }
+
+    // Packed vectors are read through their CharSequence view.
+    private abstract static class BitsFormatter implements ValueFormatter {
+        abstract String formatBits(CharSequence bits);
+
+        @Override
+        public String format(String value) {
+            return value == null || value.isEmpty() ? "x" : formatBits(value);
+        }
+
+        @Override
+        public String format(ValueSpan span) {
+            return span.isPacked() ? formatBits(span.getPackedValue()) : format(span.getValue());
+        }
+    }
+
+    private static final class RadixFormatter extends BitsFormatter {
+        private final int bitsPerDigit;
+
+        RadixFormatter(int bitsPerDigit) {
+            this.bitsPerDigit = bitsPerDigit;
+        }
+
+        @Override
+        String formatBits(CharSequence bits) {
+            int width = bits.length();
+            if (width < 64 && bits instanceof PackedValue && ((PackedValue) bits).isKnown())
+                return Long.toString(((PackedValue) bits).valueWord(0), 1 << bitsPerDigit);
+            int digitCount = (width + bitsPerDigit - 1) / bitsPerDigit;
+            var digits = new char[digitCount];
+            boolean known = true;
+            for (int d = 0; d < digitCount; d++) {
+                int value = 0;
+                int unknown = 0;
+                int highImpedance = 0;
+                int n = Math.min(bitsPerDigit, width - d * bitsPerDigit);
+                for (int b = 0; b < n; b++) {
+                    switch (bits.charAt(width - 1 - d * bitsPerDigit - b)) {
+                        case '0':
+                            break;
+                        case '1':
+                            value |= 1 << b;
+                            break;
+                        case 'x':
+                        case 'X':
+                            unknown++;
+                            break;
+                        case 'z':
+                        case 'Z':
+                            unknown++;
+                            highImpedance++;
+                            break;
+                        default:
+                            return "x";
+                    }
+                }
+                char digit;
+                if (unknown == 0)
+                    digit = Character.forDigit(value, 1 << bitsPerDigit);
+                else if (unknown == n)
+                    digit = highImpedance == n ? 'z' : highImpedance == 0 ? 'x' : 'X';
+                else
+                    digit = highImpedance == unknown ? 'Z' : 'X';
+                known &= unknown == 0;
+                digits[digitCount - 1 - d] = digit;
+            }
+            if (!known)
+                return new String(digits);
+            int first = 0;
+            while (first < digitCount - 1 && digits[first] == '0')
+                first++;
+            return new String(digits, first, digitCount - first);
+        }
+    }
+
+    private static String formatDecimal(CharSequence bits) {
+        int width = bits.length();
+        if (width < 64 && bits instanceof PackedValue && ((PackedValue) bits).isKnown())
+            return Long.toString(((PackedValue) bits).valueWord(0));
+        int unknown = 0;
+        int highImpedance = 0;
+        long value = 0;
+        for (int i = 0; i < width; i++) {
+            switch (bits.charAt(i)) {
+                case '0':
+                    value <<= 1;
+                    break;
+                case '1':
+                    value = value << 1 | 1;
+                    break;
+                case 'x':
+                case 'X':
+                    unknown++;
+                    break;
+                case 'z':
+                case 'Z':
+                    unknown++;
+                    highImpedance++;
+                    break;
+                default:
+                    return "x";
+            }
+        }
+        if (unknown > 0)
+            return highImpedance == width ? "z" : "x";
+        if (width < 64)
+            return Long.toString(value);
+        if (bits instanceof PackedValue)
+            return ((PackedValue) bits).toBigInteger().map(BigInteger::toString).orElse("x");
+        return new BigInteger(bits.toString(), 2).toString();
+    }
+
+    private static String formatPopCount(CharSequence bits) {
+        int count = 0;
+        for (int i = 0; i < bits.length(); i++) {
+            if (bits.charAt(i) == '1')
+                count++;
+        }
+        return Integer.toString(count);
+    }
+}
@@ -0,0 +1,33 @@
+package com.github.matsud224.waveviz;
+
+// Walks the value changes of a time series in either direction. After seek, getSpan() holds the
+// value at the given time and the span it is held for; next() and prev() step to the neighbouring
+// changes without searching again and without allocating.
+public interface ChangeCursor {
+    void seek(long time);
+
+    // Returns false, leaving the cursor where it is, if there is no later change.
+    boolean next();
+
+    // Returns false, leaving the cursor where it is, if there is no earlier change.
+    boolean prev();
+
+    // Only valid until the cursor moves.
+    ValueSpan getSpan();
+
+    default boolean hasValue() {
+        return getSpan().hasValue();
+    }
+
+    default String getValue() {
+        return getSpan().getValue();
+    }
+
+    default long getStartTime() {
+        return getSpan().getStartTime();
+    }
+
+    default long getEndTime() {
+        return getSpan().getEndTime();
+    }
+}
@@ -0,0 +1,35 @@
+package com.github.matsud224.waveviz;
+
+// What a signal does within a time range, filled in by TimeSeries.summarize so that a range narrower
+// than a pixel can be drawn as busy instead of showing whichever value happens to be sampled.
+public class ChangeSummary {
+    private final ValueSpan first = new ValueSpan();
+    private final ValueSpan last = new ValueSpan();
+    private int transitionCount;
+    private boolean unknown;
+
+    void set(int transitionCount, boolean unknown) {
+        this.transitionCount = transitionCount;
+        this.unknown = unknown;
+    }
+
+    // Number of changes within the range.
+    public int getTransitionCount() {
+        return transitionCount;
+    }
+
+    // Whether a value held within the range has an x or z bit.
+    public boolean hasUnknown() {
+        return unknown;
+    }
+
+    // Value held at the start of the range.
+    public ValueSpan getFirst() {
+        return first;
+    }
+
+    // Value held at the end of the range.
+    public ValueSpan getLast() {
+        return last;
+    }
+}
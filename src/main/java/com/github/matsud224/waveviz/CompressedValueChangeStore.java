@@ -0,0 +1,285 @@
+package com.github.matsud224.waveviz;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Stores changes in blocks of BLOCK_SIZE changes. A full block is encoded into a byte array with
+// varint time deltas and a block-local dictionary of its distinct values, and only its first and
+// last time stay uncompressed. Blocks are decoded on access into the shared BlockCache, so memory
+// follows the blocks being looked at rather than the length of the dump.
+public class CompressedValueChangeStore extends ValueChangeStore {
+    private static final int BLOCK_SIZE = 256;
+    private static final AtomicInteger nextStoreId = new AtomicInteger();
+
+    // Dictionary entry kinds.
+    private static final int STRING_VALUE = 0;
+    private static final int BINARY_VALUE = 1;
+    private static final int FOUR_STATE_VALUE = 2;
+
+    private final int storeId = nextStoreId.getAndIncrement();
+    private final boolean real;
+    private long[] firstTimes = new long[0];
+    private long[] lastTimes = new long[0];
+    private byte[][] blocks = new byte[0][];
+    private int blockCount = 0;
+
+    // The block being filled. Grows up to BLOCK_SIZE, so that signals with few changes stay small.
+    private long[] openTimes = new long[4];
+    private String[] openValues = new String[4];
+    private int openCount = 0;
+    private String lastValue;
+
+    private static class DecodedBlock implements BlockCache.Entry {
+        private final long[] times;
+        private final String[] values;
+        private final long estimatedSize;
+
+        private DecodedBlock(long[] times, String[] values, long estimatedSize) {
+            this.times = times;
+            this.values = values;
+            this.estimatedSize = estimatedSize;
+        }
+
+        @Override
+        public long estimatedSize() {
+            return estimatedSize;
+        }
+    }
+
+    public CompressedValueChangeStore(Timeline timeline) {
+        this(timeline, false);
+    }
+
+    public CompressedValueChangeStore(Timeline timeline, boolean real) {
+        super(timeline);
+        this.real = real;
+    }
+
+    @Override
+    public synchronized void addChange(long time, String numStr) {
+        if (real)
+            numStr = WavevizUtilities.formatReal(WavevizUtilities.parseReal(numStr));
+        // The last change is always in the open block, as a block is only closed to make room for the next one.
+        if (replacesLastChange(time)) {
+            openCount--;
+            openValues[openCount] = null;
+            lastValue = size() > 0 ? valueAt(size() - 1) : null;
+            lastChangeDropped();
+        }
+        if (numStr.equals(lastValue))
+            return;
+        lastValue = numStr;
+        if (openCount == BLOCK_SIZE)
+            closeBlock();
+        if (openCount == openTimes.length) {
+            openTimes = Arrays.copyOf(openTimes, openCount * 2);
+            openValues = Arrays.copyOf(openValues, openCount * 2);
+        }
+        openTimes[openCount] = time;
+        openValues[openCount] = numStr;
+        openCount++;
+    }
+
+    private void closeBlock() {
+        if (blockCount == blocks.length) {
+            int capacity = Math.max(4, blockCount * 2);
+            firstTimes = Arrays.copyOf(firstTimes, capacity);
+            lastTimes = Arrays.copyOf(lastTimes, capacity);
+            blocks = Arrays.copyOf(blocks, capacity);
+        }
+        firstTimes[blockCount] = openTimes[0];
+        lastTimes[blockCount] = openTimes[openCount - 1];
+        blocks[blockCount] = encode(openTimes, openValues, openCount);
+        blockCount++;
+        Arrays.fill(openValues, null);
+        openCount = 0;
+    }
+
+    private static byte[] encode(long[] times, String[] values, int count) {
+        var dictionary = new HashMap<String, Integer>();
+        var entries = new ByteArrayOutputStream();
+        var indices = new ByteArrayOutputStream();
+        for (int i = 0; i < count; i++) {
+            var index = dictionary.get(values[i]);
+            if (index == null) {
+                index = dictionary.size();
+                dictionary.put(values[i], index);
+                encodeValue(values[i], entries);
+            }
+            writeVarint(indices, index);
+        }
+        var out = new ByteArrayOutputStream(entries.size() + indices.size() + 2 * count + 8);
+        writeVarint(out, count);
+        writeVarint(out, dictionary.size());
+        out.writeBytes(entries.toByteArray());
+        for (int i = 1; i < count; i++)
+            writeVarint(out, times[i] - times[i - 1]);
+        out.writeBytes(indices.toByteArray());
+        return out.toByteArray();
+    }
+
+    // Vectors of 0/1 take one bit per bit, vectors that also have x or z two bits per bit.
+    private static void encodeValue(String value, ByteArrayOutputStream out) {
+        boolean binary = true;
+        boolean fourState = value.length() > 1;
+        for (int i = 0; i < value.length() && fourState; i++) {
+            char c = value.charAt(i);
+            if (c == 'x' || c == 'z')
+                binary = false;
+            else if (c != '0' && c != '1')
+                fourState = false;
+        }
+        if (!fourState) {
+            var bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.write(STRING_VALUE);
+            writeVarint(out, bytes.length);
+            out.writeBytes(bytes);
+            return;
+        }
+        out.write(binary ? BINARY_VALUE : FOUR_STATE_VALUE);
+        writeVarint(out, value.length());
+        writePlane(value, out, '1', 'z');
+        if (!binary)
+            writePlane(value, out, 'x', 'z');
+    }
+
+    // Packs the bits for which the character is one of the two given, most significant first.
+    private static void writePlane(String value, ByteArrayOutputStream out, char one, char other) {
+        int b = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            b = b << 1 | (c == one || c == other ? 1 : 0);
+            if ((i & 7) == 7) {
+                out.write(b);
+                b = 0;
+            }
+        }
+        if ((value.length() & 7) != 0)
+            out.write(b << (8 - (value.length() & 7)));
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private DecodedBlock decode(int blockIndex) {
+        var cache = BlockCache.shared();
+        long key = (long) storeId << 32 | blockIndex;
+        var cached = (DecodedBlock) cache.get(key);
+        if (cached != null)
+            return cached;
+
+        var data = blocks[blockIndex];
+        var position = new int[1];
+        int count = (int) readVarint(data, position);
+        var dictionary = new String[(int) readVarint(data, position)];
+        long estimatedSize = 64 + 12L * count;
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = decodeValue(data, position);
+            estimatedSize += 48 + dictionary[i].length();
+        }
+        var times = new long[count];
+        times[0] = firstTimes[blockIndex];
+        for (int i = 1; i < count; i++)
+            times[i] = times[i - 1] + readVarint(data, position);
+        var values = new String[count];
+        for (int i = 0; i < count; i++)
+            values[i] = dictionary[(int) readVarint(data, position)];
+
+        var block = new DecodedBlock(times, values, estimatedSize);
+        cache.put(key, block);
+        return block;
+    }
+
+    private static String decodeValue(byte[] data, int[] position) {
+        int kind = data[position[0]++];
+        int length = (int) readVarint(data, position);
+        if (kind == STRING_VALUE) {
+            var value = new String(data, position[0], length, StandardCharsets.UTF_8);
+            position[0] += length;
+            return value;
+        }
+        int planeBytes = (length + 7) / 8;
+        int valuePlane = position[0];
+        int unknownPlane = valuePlane + planeBytes;
+        var chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            int mask = 0x80 >>> (i & 7);
+            boolean valueBit = (data[valuePlane + (i >>> 3)] & mask) != 0;
+            boolean unknownBit = kind == FOUR_STATE_VALUE && (data[unknownPlane + (i >>> 3)] & mask) != 0;
+            chars[i] = unknownBit ? (valueBit ? 'z' : 'x') : (valueBit ? '1' : '0');
+        }
+        position[0] += kind == FOUR_STATE_VALUE ? 2 * planeBytes : planeBytes;
+        return new String(chars);
+    }
+
+    private static long readVarint(byte[] data, int[] position) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = data[position[0]++];
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+    }
+
+    @Override
+    protected int size() {
+        return blockCount * BLOCK_SIZE + openCount;
+    }
+
+    @Override
+    protected long timeAt(int index) {
+        int blockIndex = index / BLOCK_SIZE;
+        if (blockIndex == blockCount)
+            return openTimes[index % BLOCK_SIZE];
+        if (index % BLOCK_SIZE == 0)
+            return firstTimes[blockIndex];
+        if (index % BLOCK_SIZE == BLOCK_SIZE - 1)
+            return lastTimes[blockIndex];
+        return decode(blockIndex).times[index % BLOCK_SIZE];
+    }
+
+    @Override
+    protected String valueAt(int index) {
+        int blockIndex = index / BLOCK_SIZE;
+        if (blockIndex == blockCount)
+            return openValues[index % BLOCK_SIZE];
+        return decode(blockIndex).values[index % BLOCK_SIZE];
+    }
+
+    // Finds the block from the uncompressed headers first, so that only one block is decoded.
+    @Override
+    protected int searchStartingTime(long time) {
+        int low = 0;
+        int high = blockCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (firstTimes[mid] > time)
+                high = mid - 1;
+            else
+                low = mid + 1;
+        }
+        int blockIndex = high;
+        if (openCount > 0 && openTimes[0] <= time)
+            blockIndex = blockCount;
+        else if (blockIndex < 0)
+            return 0;
+        if (blockIndex < blockCount && time >= lastTimes[blockIndex])
+            return blockIndex * BLOCK_SIZE + BLOCK_SIZE - 1;
+
+        long[] times = blockIndex == blockCount ? openTimes : decode(blockIndex).times;
+        int count = blockIndex == blockCount ? openCount : BLOCK_SIZE;
+        int index = Arrays.binarySearch(times, 0, count, time);
+        if (index < 0)
+            index = -index - 2;
+        return blockIndex * BLOCK_SIZE + Math.max(index, 0);
+    }
+}
@@ -0,0 +1,625 @@
+package com.github.matsud224.waveviz;
+
+import com.github.matsud224.waveviz.VCDParser.MetaData;
+import com.github.matsud224.waveviz.VCDParser.ParseOptions;
+import com.github.matsud224.waveviz.VCDParser.ParseResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.function.BiFunction;
+import java.util.zip.GZIPInputStream;
+
+// Reader for the FST format written by GTKWave's fstapi. Opening a file only reads its header,
+// geometry and hierarchy. Value change blocks are decompressed later, and only for the signals
+// that are requested.
+public class FSTReader {
+    private static final int BL_HDR = 0;
+    private static final int BL_VCDATA = 1;
+    private static final int BL_GEOM = 3;
+    private static final int BL_HIER = 4;
+    private static final int BL_VCDATA_DYN_ALIAS = 5;
+    private static final int BL_HIER_LZ4 = 6;
+    private static final int BL_HIER_LZ4DUO = 7;
+    private static final int BL_VCDATA_DYN_ALIAS2 = 8;
+    private static final int BL_ZWRAPPER = 254;
+
+    private static final int ST_GEN_ATTRBEGIN = 252;
+    private static final int ST_GEN_ATTREND = 253;
+    private static final int ST_VCD_SCOPE = 254;
+    private static final int ST_VCD_UPSCOPE = 255;
+
+    private static final int VT_VCD_REAL = 3;
+    private static final int VT_VCD_REAL_PARAMETER = 4;
+    private static final int VT_VCD_REALTIME = 20;
+    private static final int VT_SV_SHORTREAL = 29;
+
+    private static final String[] VAR_TYPE_NAMES = {
+            "EVENT", "INTEGER", "PARAMETER", "REAL", "REAL_PARAMETER", "REG", "SUPPLY0", "SUPPLY1", "TIME",
+            "TRI", "TRIAND", "TRIOR", "TRIREG", "TRI0", "TRI1", "WAND", "WIRE", "WOR", "PORT", "SPARRAY",
+            "REALTIME", "STRING", "BIT", "LOGIC", "INT", "SHORTINT", "LONGINT", "BYTE", "ENUM", "SHORTREAL"
+    };
+    private static final String[] SCOPE_TYPE_NAMES = {
+            "MODULE", "TASK", "FUNCTION", "BEGIN", "FORK", "GENERATE", "STRUCT", "UNION", "CLASS", "INTERFACE",
+            "PACKAGE", "PROGRAM", "VHDL_ARCHITECTURE", "VHDL_PROCEDURE", "VHDL_FUNCTION", "VHDL_RECORD",
+            "VHDL_PROCESS", "VHDL_BLOCK", "VHDL_FOR_GENERATE", "VHDL_IF_GENERATE", "VHDL_GENERATE", "VHDL_PACKAGE"
+    };
+    // Values of non-0/1 single bit changes.
+    private static final String[] SCALAR_VALUES = {"x", "z", "h", "u", "w", "l", "-", "?"};
+
+    public static class InvalidFSTFormatException extends IOException {
+        public InvalidFSTFormatException(String message) {
+            super(message);
+        }
+    }
+
+    // A value change block, located by the offset of its section length field.
+    private static class Block {
+        private final int type;
+        private final long position;
+        private final long length;
+
+        private Block(int type, long position, long length) {
+            this.type = type;
+            this.position = position;
+            this.length = length;
+        }
+    }
+
+    // Per handle layout of values. A length of 0 means the variable has no value.
+    private static class Geometry {
+        private int[] lengths = new int[0];
+        private boolean[] isReal = new boolean[0];
+    }
+
+    public static boolean isFSTFile(Path path) {
+        return path.getFileName().toString().toLowerCase().endsWith(".fst");
+    }
+
+    public static ParseResult read(Path path, String name, ParseOptions options) throws IOException {
+        var listener = options.getProgressListener();
+        var filePath = unwrap(path);
+        var channel = FileChannel.open(filePath, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            var metaData = new MetaData();
+            var timeline = new Timeline();
+            var geometry = new Geometry();
+            var blocks = new ArrayList<Block>();
+            byte[] hierarchy = null;
+            boolean hasHeader = false;
+            boolean doubleLittleEndian = true;
+
+            for (long position = 0; position + 9 <= size; ) {
+                var head = readBytes(channel, position, 9);
+                int type = head[0] & 0xff;
+                long length = ByteBuffer.wrap(head, 1, 8).getLong();
+                if (length < 8 || position + 1 + length > size) {
+                    // A simulator that is still writing or crashed may leave a partial block at the end.
+                    System.out.printf("Warning: ignoring truncated block at offset %d of %s\n", position, name);
+                    break;
+                }
+                long section = position + 1;
+                switch (type) {
+                    case BL_HDR: {
+                        var header = ByteBuffer.wrap(readBytes(channel, section + 8, (int) Math.min(length - 8, 321)));
+                        header.getLong();
+                        long endTime = header.getLong();
+                        var endianTest = new byte[8];
+                        header.get(endianTest);
+                        doubleLittleEndian = ByteBuffer.wrap(endianTest).order(ByteOrder.LITTLE_ENDIAN).getDouble() == Math.E;
+                        header.position(header.position() + 8 * 5);
+                        int exponent = header.get();
+                        metaData.setVersion(readCString(header, 128));
+                        metaData.setDate(readCString(header, 119));
+                        metaData.setTimeScale(toTimescale(exponent));
+                        timeline.setEndTime(toTime(endTime));
+                        hasHeader = true;
+                        break;
+                    }
+                    case BL_GEOM:
+                        geometry = readGeometry(channel, section, length);
+                        break;
+                    case BL_HIER:
+                    case BL_HIER_LZ4:
+                    case BL_HIER_LZ4DUO:
+                        hierarchy = readHierarchy(channel, type, section, length);
+                        break;
+                    case BL_VCDATA:
+                    case BL_VCDATA_DYN_ALIAS:
+                    case BL_VCDATA_DYN_ALIAS2:
+                        blocks.add(new Block(type, section, length));
+                        break;
+                    default:
+                        break;
+                }
+                position = section + length;
+            }
+            if (!hasHeader)
+                throw new InvalidFSTFormatException("no header block found");
+            if (hierarchy == null)
+                throw new InvalidFSTFormatException("no hierarchy block found");
+
+            var stores = new ArrayList<ValueChangeStore>();
+            var root = new HierarchyTree(name, "FILE", null);
+            buildHierarchy(hierarchy, root, stores, timeline, geometry, options.newStoreFactory());
+            var storeArray = stores.toArray(new ValueChangeStore[0]);
+            var result = new ParseResult(root, metaData, timeline, storeArray);
+            new BlockLoader(name, channel, blocks, storeArray, geometry, doubleLittleEndian, options).attach();
+
+            if (listener != null) {
+                listener.definitionsParsed(result);
+                listener.progressed(size, size, 0);
+            }
+            return result;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Files written with the whole-file gzip wrapper are inflated to a temporary file first.
+    private static Path unwrap(Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < 17 || (readBytes(channel, 0, 1)[0] & 0xff) != BL_ZWRAPPER)
+                return path;
+        }
+        var tempPath = Files.createTempFile("waveviz", ".fst");
+        tempPath.toFile().deleteOnExit();
+        try (var stream = Files.newInputStream(path)) {
+            // Block type, section length and uncompressed length precede the gzip stream.
+            if (stream.readNBytes(1 + 8 + 8).length != 1 + 8 + 8)
+                throw new InvalidFSTFormatException("truncated wrapper block");
+            Files.copy(new GZIPInputStream(stream, 1 << 16), tempPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return tempPath;
+    }
+
+    private static Geometry readGeometry(FileChannel channel, long section, long length) throws IOException {
+        var head = ByteBuffer.wrap(readBytes(channel, section + 8, 16));
+        long uncompressedLength = head.getLong();
+        int maxHandle = checkedInt(head.getLong());
+        var data = readMaybeCompressed(channel, section + 24, length - 24, uncompressedLength);
+
+        var geometry = new Geometry();
+        geometry.lengths = new int[maxHandle];
+        geometry.isReal = new boolean[maxHandle];
+        var cursor = new Cursor(data, 0);
+        for (int i = 0; i < maxHandle; i++) {
+            long value = cursor.varint();
+            if (value == 0) {
+                geometry.lengths[i] = 8;
+                geometry.isReal[i] = true;
+            } else {
+                geometry.lengths[i] = value == 0xFFFFFFFFL ? 0 : checkedInt(value);
+            }
+        }
+        return geometry;
+    }
+
+    private static byte[] readHierarchy(FileChannel channel, int type, long section, long length) throws IOException {
+        int uncompressedLength = checkedInt(ByteBuffer.wrap(readBytes(channel, section + 8, 8)).getLong());
+        var data = readBytes(channel, section + 16, checkedInt(length - 16));
+        switch (type) {
+            case BL_HIER:
+                try (InputStream stream = new GZIPInputStream(new ByteArrayInputStream(data))) {
+                    var hierarchy = stream.readNBytes(uncompressedLength);
+                    if (hierarchy.length != uncompressedLength)
+                        throw new InvalidFSTFormatException("truncated hierarchy block");
+                    return hierarchy;
+                }
+            case BL_HIER_LZ4:
+                return BlockDecompressor.lz4(data, 0, data.length, uncompressedLength);
+            default: {
+                var cursor = new Cursor(data, 0);
+                int onceLength = checkedInt(cursor.varint());
+                var once = BlockDecompressor.lz4(data, cursor.position, data.length - cursor.position, onceLength);
+                return BlockDecompressor.lz4(once, 0, once.length, uncompressedLength);
+            }
+        }
+    }
+
+    private static void buildHierarchy(byte[] data, HierarchyTree root, ArrayList<ValueChangeStore> stores,
+                                       Timeline timeline, Geometry geometry,
+                                       BiFunction<Timeline, Boolean, ValueChangeStore> storeFactory) throws IOException {
+        var cursor = new Cursor(data, 0);
+        var currentScope = root;
+        while (cursor.position < data.length) {
+            int tag = cursor.u8();
+            switch (tag) {
+                case ST_VCD_SCOPE: {
+                    int scopeType = cursor.u8();
+                    var scopeName = cursor.cString();
+                    cursor.cString();
+                    var scopeTypeName = scopeType < SCOPE_TYPE_NAMES.length ? SCOPE_TYPE_NAMES[scopeType] : "UNKNOWN";
+                    var scope = new HierarchyTree(scopeName, scopeTypeName, currentScope);
+                    currentScope.children.add(scope);
+                    currentScope = scope;
+                    break;
+                }
+                case ST_VCD_UPSCOPE:
+                    if (currentScope.getParent() != null)
+                        currentScope = currentScope.getParent();
+                    break;
+                case ST_GEN_ATTRBEGIN:
+                    cursor.u8();
+                    cursor.u8();
+                    cursor.cString();
+                    cursor.varint();
+                    break;
+                case ST_GEN_ATTREND:
+                    break;
+                default: {
+                    if (tag >= VAR_TYPE_NAMES.length)
+                        throw new InvalidFSTFormatException("unknown hierarchy tag " + tag);
+                    cursor.u8();
+                    // Writers put a space between the name and its bit range, unlike VCD references.
+                    var reference = cursor.cString().replace(" [", "[");
+                    int width = checkedInt(cursor.varint());
+                    int alias = checkedInt(cursor.varint());
+                    int storeIndex;
+                    if (alias == 0) {
+                        boolean isReal = tag == VT_VCD_REAL || tag == VT_VCD_REAL_PARAMETER
+                                || tag == VT_VCD_REALTIME || tag == VT_SV_SHORTREAL;
+                        storeIndex = stores.size();
+                        stores.add(storeFactory.apply(timeline, isReal));
+                        if (storeIndex >= geometry.lengths.length)
+                            geometry = extendGeometry(geometry, storeIndex + 1);
+                        if (geometry.lengths[storeIndex] == 0 && width > 0) {
+                            geometry.lengths[storeIndex] = isReal ? 8 : width;
+                            geometry.isReal[storeIndex] = isReal;
+                        }
+                    } else {
+                        storeIndex = alias - 1;
+                        if (storeIndex < 0 || storeIndex >= stores.size())
+                            throw new InvalidFSTFormatException("alias to unknown handle " + alias);
+                    }
+                    var path = currentScope.getPath();
+                    path.add(reference);
+                    currentScope.signals.add(new Signal(path, VAR_TYPE_NAMES[tag], width, stores.get(storeIndex)));
+                    break;
+                }
+            }
+        }
+    }
+
+    // Only used for files without a geometry block, where the hierarchy is the only source of widths.
+    private static Geometry extendGeometry(Geometry geometry, int maxHandle) {
+        var lengths = java.util.Arrays.copyOf(geometry.lengths, Math.max(maxHandle, geometry.lengths.length * 2));
+        var isReal = java.util.Arrays.copyOf(geometry.isReal, lengths.length);
+        geometry.lengths = lengths;
+        geometry.isReal = isReal;
+        return geometry;
+    }
+
+    private static class BlockLoader extends BatchedStoreLoader {
+        private final FileChannel channel;
+        private final ArrayList<Block> blocks;
+        private final ValueChangeStore[] stores;
+        private final Geometry geometry;
+        private final ByteOrder doubleOrder;
+
+        private BlockLoader(String name, FileChannel channel, ArrayList<Block> blocks, ValueChangeStore[] stores,
+                            Geometry geometry, boolean doubleLittleEndian, ParseOptions options) {
+            super(name, stores, options.getSignalsLoadedListener());
+            this.channel = channel;
+            this.blocks = blocks;
+            this.stores = stores;
+            this.geometry = geometry;
+            this.doubleOrder = doubleLittleEndian ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+        }
+
+        @Override
+        protected void release() throws IOException {
+            channel.close();
+        }
+
+        @Override
+        protected void load(boolean[] wanted) throws IOException {
+            // A change is only appended once the next one has a later time, so that several
+            // changes at one time collapse into the last of them.
+            var pendingTimes = new long[stores.length];
+            var pendingValues = new String[stores.length];
+            java.util.Arrays.fill(pendingTimes, -1);
+            for (var block : blocks)
+                loadBlock(block, wanted, pendingTimes, pendingValues);
+            for (int i = 0; i < stores.length; i++) {
+                if (wanted[i] && pendingValues[i] != null)
+                    stores[i].addChange(toTime(pendingTimes[i]), pendingValues[i]);
+            }
+        }
+
+        private void addChange(int handle, long time, String value, long[] pendingTimes, String[] pendingValues) throws IOException {
+            if (pendingValues[handle] != null && pendingTimes[handle] < time)
+                stores[handle].addChange(toTime(pendingTimes[handle]), pendingValues[handle]);
+            pendingTimes[handle] = time;
+            pendingValues[handle] = value;
+        }
+
+        private void loadBlock(Block block, boolean[] wanted, long[] pendingTimes, String[] pendingValues) throws IOException {
+            long section = block.position;
+            long end = section + block.length;
+            var head = ByteBuffer.wrap(readBytes(channel, section + 8, 8));
+            long beginTime = head.getLong();
+
+            // Time table at the end of the block.
+            var tail = ByteBuffer.wrap(readBytes(channel, end - 24, 24));
+            long timeUncompressedLength = tail.getLong();
+            long timeCompressedLength = tail.getLong();
+            int timeCount = checkedInt(tail.getLong());
+            long timePosition = end - 24 - timeCompressedLength;
+            var timeData = readMaybeCompressed(channel, timePosition, timeCompressedLength, timeUncompressedLength);
+            var times = new long[timeCount];
+            var timeCursor = new Cursor(timeData, 0);
+            long time = 0;
+            for (int i = 0; i < timeCount; i++) {
+                time += timeCursor.varint();
+                times[i] = time;
+            }
+
+            // Initial values of the block.
+            var frameHead = new Cursor(readBytes(channel, section + 32, (int) Math.min(30, end - section - 32)), 0);
+            long frameUncompressedLength = frameHead.varint();
+            long frameCompressedLength = frameHead.varint();
+            int frameMaxHandle = checkedInt(frameHead.varint());
+            long framePosition = section + 32 + frameHead.position;
+            var frame = readMaybeCompressed(channel, framePosition, frameCompressedLength, frameUncompressedLength);
+            int offset = 0;
+            for (int i = 0; i < frameMaxHandle && i < stores.length; i++) {
+                int length = geometry.lengths[i];
+                if (wanted[i] && length > 0)
+                    addChange(i, beginTime, decodeFrameValue(frame, offset, i), pendingTimes, pendingValues);
+                offset += length;
+            }
+
+            var vcHead = new Cursor(readBytes(channel, framePosition + frameCompressedLength, (int) Math.min(11, end - framePosition - frameCompressedLength)), 0);
+            int vcMaxHandle = checkedInt(vcHead.varint());
+            long vcStart = framePosition + frameCompressedLength + vcHead.position;
+            int packType = vcHead.u8();
+
+            // Position table, which locates the changes of each handle relative to vcStart.
+            long chainLength = ByteBuffer.wrap(readBytes(channel, timePosition - 8, 8)).getLong();
+            long chainPosition = timePosition - 8 - chainLength;
+            var chain = readBytes(channel, chainPosition, checkedInt(chainLength));
+            var offsets = new long[vcMaxHandle + 1];
+            var lengths = new long[vcMaxHandle + 1];
+            decodeChain(chain, block.type, offsets, lengths, chainPosition - vcStart);
+
+            for (int i = 0; i < vcMaxHandle && i < stores.length; i++) {
+                if (!wanted[i] || offsets[i] == 0)
+                    continue;
+                var data = readBytes(channel, vcStart + offsets[i], checkedInt(lengths[i]));
+                var cursor = new Cursor(data, 0);
+                int uncompressedLength = checkedInt(cursor.varint());
+                byte[] changes;
+                int position;
+                if (uncompressedLength == 0) {
+                    changes = data;
+                    position = cursor.position;
+                } else {
+                    int compressedLength = data.length - cursor.position;
+                    if (packType == '4')
+                        changes = BlockDecompressor.lz4(data, cursor.position, compressedLength, uncompressedLength);
+                    else if (packType == 'F')
+                        changes = BlockDecompressor.fastLz(data, cursor.position, compressedLength, uncompressedLength);
+                    else
+                        changes = BlockDecompressor.zlib(data, cursor.position, compressedLength, uncompressedLength);
+                    position = 0;
+                }
+                decodeChanges(i, new Cursor(changes, position), times, pendingTimes, pendingValues);
+            }
+        }
+
+        private void decodeChain(byte[] chain, int blockType, long[] offsets, long[] lengths, long chainEnd) throws IOException {
+            var cursor = new Cursor(chain, 0);
+            int index = 0;
+            int previous = -1;
+            long offset = 0;
+            long previousAlias = 0;
+            while (cursor.position < chain.length && index < offsets.length - 1) {
+                if (blockType == BL_VCDATA_DYN_ALIAS2) {
+                    if ((chain[cursor.position] & 1) != 0) {
+                        long value = cursor.svarint() >> 1;
+                        if (value > 0) {
+                            offset += value;
+                            offsets[index] = offset;
+                            if (previous >= 0)
+                                lengths[previous] = offset - offsets[previous];
+                            previous = index++;
+                        } else {
+                            if (value < 0)
+                                previousAlias = value;
+                            offsets[index] = 0;
+                            lengths[index] = previousAlias;
+                            index++;
+                        }
+                    } else {
+                        index += (int) (cursor.varint() >> 1);
+                    }
+                } else {
+                    long value = cursor.varint();
+                    if (value == 0) {
+                        offsets[index] = 0;
+                        lengths[index] = -cursor.varint();
+                        index++;
+                    } else if ((value & 1) != 0) {
+                        offset += value >> 1;
+                        offsets[index] = offset;
+                        if (previous >= 0)
+                            lengths[previous] = offset - offsets[previous];
+                        previous = index++;
+                    } else {
+                        index += (int) (value >> 1);
+                    }
+                }
+            }
+            if (previous >= 0)
+                lengths[previous] = chainEnd - offsets[previous];
+
+            // Negative lengths refer to another handle whose changes are identical in this block.
+            for (int i = 0; i < offsets.length; i++) {
+                if (offsets[i] == 0 && lengths[i] < 0) {
+                    int target = (int) (-lengths[i] - 1);
+                    if (target < i) {
+                        offsets[i] = offsets[target];
+                        lengths[i] = lengths[target];
+                    } else {
+                        lengths[i] = 0;
+                    }
+                }
+            }
+        }
+
+        private String decodeFrameValue(byte[] frame, int offset, int handle) {
+            if (geometry.isReal[handle])
+                return WavevizUtilities.formatReal(ByteBuffer.wrap(frame, offset, 8).order(doubleOrder).getDouble());
+            return new String(frame, offset, geometry.lengths[handle], StandardCharsets.ISO_8859_1);
+        }
+
+        private void decodeChanges(int handle, Cursor cursor, long[] times, long[] pendingTimes, String[] pendingValues) throws IOException {
+            int length = geometry.lengths[handle];
+            int timeIndex = 0;
+            var data = cursor.data;
+            while (cursor.position < data.length) {
+                long vli = cursor.varint();
+                String value;
+                if (geometry.isReal[handle]) {
+                    timeIndex += (int) (vli >>> 1);
+                    value = WavevizUtilities.formatReal(ByteBuffer.wrap(data, cursor.position, 8).order(doubleOrder).getDouble());
+                    cursor.position += 8;
+                } else if (length == 1) {
+                    if ((vli & 1) == 0) {
+                        timeIndex += (int) (vli >>> 2);
+                        value = (vli & 2) == 0 ? "0" : "1";
+                    } else {
+                        timeIndex += (int) (vli >>> 4);
+                        value = SCALAR_VALUES[(int) ((vli >>> 1) & 7)];
+                    }
+                } else {
+                    timeIndex += (int) (vli >>> 1);
+                    var chars = new byte[length];
+                    if ((vli & 1) == 0) {
+                        for (int j = 0; j < length; j++)
+                            chars[j] = (byte) ('0' + ((data[cursor.position + (j >>> 3)] >>> (7 - (j & 7))) & 1));
+                        cursor.position += (length + 7) / 8;
+                    } else {
+                        System.arraycopy(data, cursor.position, chars, 0, length);
+                        cursor.position += length;
+                    }
+                    value = new String(chars, StandardCharsets.ISO_8859_1);
+                }
+                if (timeIndex >= times.length)
+                    throw new InvalidFSTFormatException("time index out of range");
+                addChange(handle, times[timeIndex], value, pendingTimes, pendingValues);
+            }
+        }
+    }
+
+    private static class Cursor {
+        private final byte[] data;
+        private int position;
+
+        private Cursor(byte[] data, int position) {
+            this.data = data;
+            this.position = position;
+        }
+
+        private int u8() throws IOException {
+            if (position >= data.length)
+                throw new InvalidFSTFormatException("unexpected end of data");
+            return data[position++] & 0xff;
+        }
+
+        private long varint() throws IOException {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                int b = u8();
+                value |= (long) (b & 0x7f) << shift;
+                if ((b & 0x80) == 0)
+                    return value;
+                if (shift > 56)
+                    throw new InvalidFSTFormatException("varint is too long");
+            }
+        }
+
+        private long svarint() throws IOException {
+            long value = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = u8();
+                value |= (long) (b & 0x7f) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0 && shift < 64);
+            if (shift < 64 && (b & 0x40) != 0)
+                value |= -1L << shift;
+            return value;
+        }
+
+        private String cString() throws IOException {
+            int start = position;
+            while (u8() != 0) {
+            }
+            return new String(data, start, position - start - 1, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String readCString(ByteBuffer buffer, int length) {
+        var bytes = new byte[length];
+        buffer.get(bytes);
+        int n = 0;
+        while (n < length && bytes[n] != 0)
+            n++;
+        return new String(bytes, 0, n, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readMaybeCompressed(FileChannel channel, long position, long compressedLength, long uncompressedLength) throws IOException {
+        var data = readBytes(channel, position, checkedInt(compressedLength));
+        if (compressedLength == uncompressedLength)
+            return data;
+        return BlockDecompressor.zlib(data, 0, data.length, checkedInt(uncompressedLength));
+    }
+
+    private static byte[] readBytes(FileChannel channel, long position, int length) throws IOException {
+        var buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + buffer.position());
+            if (n < 0)
+                throw new InvalidFSTFormatException("unexpected end of file");
+        }
+        return buffer.array();
+    }
+
+    // FST exponents are powers of ten of a second, e.g. -9 for 1ns and -10 for 100ps.
+    private static Timescale toTimescale(int exponent) {
+        exponent = Math.max(-15, Math.min(2, exponent));
+        var units = Timescale.TimeUnit.values();
+        int unitIndex = Math.min(units.length - 1, (-exponent + 2) / 3);
+        int multiplier = 1;
+        for (int i = exponent + 3 * unitIndex; i > 0; i--)
+            multiplier *= 10;
+        return new Timescale(multiplier, units[unitIndex]);
+    }
+
+    // FST times are unsigned, but the viewer only handles those that fit in a signed long.
+    private static long toTime(long time) throws InvalidFSTFormatException {
+        if (time < 0)
+            throw new InvalidFSTFormatException("time is too large");
+        return time;
+    }
+
+    private static int checkedInt(long value) throws InvalidFSTFormatException {
+        if (value < 0 || value > Integer.MAX_VALUE)
+            throw new InvalidFSTFormatException("size is out of range");
+        return (int) value;
+    }
+}
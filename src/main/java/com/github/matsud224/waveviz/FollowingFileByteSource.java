@@ -0,0 +1,58 @@
+package com.github.matsud224.waveviz;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.BooleanSupplier;
+
+// Reads a file that is still being written, waiting for more bytes at the end of it
+// until stopRequested returns true.
+public class FollowingFileByteSource implements VCDByteSource {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long POLL_INTERVAL_MILLIS = 200;
+
+    private final FileChannel channel;
+    private final BooleanSupplier stopRequested;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private long position = 0;
+
+    public FollowingFileByteSource(Path path, BooleanSupplier stopRequested) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.stopRequested = stopRequested;
+    }
+
+    @Override
+    public ByteBuffer next() throws IOException {
+        while (true) {
+            buffer.clear();
+            int n = channel.read(buffer, position);
+            if (n > 0) {
+                position += n;
+                buffer.flip();
+                return buffer;
+            }
+            if (stopRequested.getAsBoolean())
+                return null;
+            if (channel.size() < position)
+                throw new IOException("file was truncated while following it");
+            try {
+                Thread.sleep(POLL_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public long length() {
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
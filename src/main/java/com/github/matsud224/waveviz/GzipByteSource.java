@@ -0,0 +1,106 @@
+package com.github.matsud224.waveviz;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+
+// Decompresses a gzip file on a separate thread, so that inflating and parsing overlap.
+// The two threads pass a fixed ring of buffers back and forth through a pair of queues.
+public class GzipByteSource implements VCDByteSource {
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int BUFFER_COUNT = 4;
+    private static final ByteBuffer END_OF_INPUT = ByteBuffer.allocate(0);
+
+    private final BlockingQueue<ByteBuffer> freeBuffers = new ArrayBlockingQueue<>(BUFFER_COUNT);
+    private final BlockingQueue<ByteBuffer> filledBuffers = new ArrayBlockingQueue<>(BUFFER_COUNT + 1);
+    private final Thread inflater;
+    private volatile IOException error;
+    private ByteBuffer current;
+    private boolean finished = false;
+
+    public GzipByteSource(Path path) throws IOException {
+        var stream = new GZIPInputStream(Files.newInputStream(path), 1 << 16);
+        for (int i = 0; i < BUFFER_COUNT; i++)
+            freeBuffers.add(ByteBuffer.allocate(BUFFER_SIZE));
+        inflater = new Thread(() -> inflate(stream), "Decompressor for " + path.getFileName());
+        inflater.setDaemon(true);
+        inflater.start();
+    }
+
+    public static boolean isGzipFile(Path path) throws IOException {
+        if (!Files.isRegularFile(path))
+            return false;
+        try (var stream = Files.newInputStream(path)) {
+            return stream.read() == 0x1f && stream.read() == 0x8b;
+        }
+    }
+
+    private void inflate(InputStream stream) {
+        try (stream) {
+            while (true) {
+                var buffer = freeBuffers.take();
+                buffer.clear();
+                // Fill the whole buffer, since GZIPInputStream returns small pieces at a time.
+                int n = 0;
+                while (n < BUFFER_SIZE) {
+                    int read = stream.read(buffer.array(), n, BUFFER_SIZE - n);
+                    if (read < 0)
+                        break;
+                    n += read;
+                }
+                if (n > 0) {
+                    buffer.limit(n);
+                    filledBuffers.put(buffer);
+                }
+                if (n < BUFFER_SIZE)
+                    break;
+            }
+        } catch (IOException e) {
+            error = e;
+        } catch (InterruptedException e) {
+            return;
+        }
+        filledBuffers.add(END_OF_INPUT);
+    }
+
+    @Override
+    public ByteBuffer next() throws IOException {
+        if (current != null) {
+            freeBuffers.add(current);
+            current = null;
+        }
+        if (finished)
+            return null;
+        try {
+            var buffer = filledBuffers.take();
+            if (buffer == END_OF_INPUT) {
+                finished = true;
+                if (error != null)
+                    throw error;
+                return null;
+            }
+            current = buffer;
+            return buffer;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while decompressing");
+        }
+    }
+
+    // The uncompressed size is not known in advance. The size field in the gzip trailer is only
+    // the size modulo 2^32, which is commonly exceeded by waveform dumps.
+    @Override
+    public long length() {
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.interrupt();
+    }
+}
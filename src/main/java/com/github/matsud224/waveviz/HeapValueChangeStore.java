@@ -0,0 +1,437 @@
+package com.github.matsud224.waveviz;
+
+import java.util.Arrays;
+
+// Changes are kept in growable primitive arrays. Single-bit 0/1/x/z values of either case are
+// stored as codes without objects, vectors of 0/1/x/z as bit planes in a long[] arena, and anything else as
+// an index into a string array. On a timeline with a time table, times are kept as 16-bit indices
+// into it, widened to 32 bits once the table outgrows them.
+//
+// Strictly periodic runs of two alternating scalar values, such as clocks, are kept as Run
+// segments instead of explicit changes. Indices passed in by ValueChangeStore count the changes
+// of runs too, and are mapped to a run or to an explicit change by a search over the runs.
+//
+// Real variables keep their values in a double[] instead of value codes, with a RealRangeIndex
+// over it for drawing analog traces.
+public class HeapValueChangeStore extends ValueChangeStore {
+    // Codes from 2 on are unknown. Upper case x and z keep codes of their own, so they read back as written.
+    private static final String[] SCALAR_VALUES = {"0", "1", "x", "z", "X", "Z"};
+    private static final int INITIAL_CAPACITY = 4;
+    private static final String[] NO_STRINGS = new String[0];
+    private static final long[] NO_WORDS = new long[0];
+    private static final Run[] NO_RUNS = new Run[0];
+    // Explicit changes that follow a periodic pattern are turned into a run once there are this many.
+    private static final int MIN_RUN_LENGTH = 16;
+
+    private final TimeTable table;
+    // Exactly one of these holds the times, depending on the table and its size.
+    private long[] times;
+    private char[] shortTimeIndices;
+    private int[] timeIndices;
+    // Codes below SCALAR_VALUES.length are scalars, higher ones index strings,
+    // and negative ones are the bitwise complement of an arena offset.
+    private int[] valueCodes;
+    // Only for real variables, which have no value codes.
+    private double[] reals;
+    private RealRangeIndex realRanges;
+    private int count = 0;
+    private String[] strings = NO_STRINGS;
+    private int stringCount = 0;
+    private long[] arena = NO_WORDS;
+    private int arenaLength = 0;
+    private Run[] runs = NO_RUNS;
+    private int runCount = 0;
+    // Number of changes held by runs.
+    private int runTotal = 0;
+    // Number of trailing explicit changes that follow a periodic pattern.
+    private int periodicTail = 0;
+
+    private static final class Run {
+        // Index of the first change, counting the changes of earlier runs.
+        final int firstIndex;
+        // Number of explicit changes stored before the run.
+        final int explicitBefore;
+        final long startTime;
+        final long period;
+        // Time from the first value to the second within a period.
+        final long duty;
+        final int firstCode;
+        final int secondCode;
+        int length;
+
+        Run(int firstIndex, int explicitBefore, long startTime, long period, long duty, int firstCode, int secondCode, int length) {
+            this.firstIndex = firstIndex;
+            this.explicitBefore = explicitBefore;
+            this.startTime = startTime;
+            this.period = period;
+            this.duty = duty;
+            this.firstCode = firstCode;
+            this.secondCode = secondCode;
+            this.length = length;
+        }
+
+        long timeAt(int k) {
+            return startTime + (k >> 1) * period + ((k & 1) == 0 ? 0 : duty);
+        }
+
+        int codeAt(int k) {
+            return (k & 1) == 0 ? firstCode : secondCode;
+        }
+
+        // The time must not be before the start of the run.
+        int floorIndex(long time) {
+            long offset = time - startTime;
+            long k = offset / period * 2 + (offset % period >= duty ? 1 : 0);
+            return (int) Math.min(k, length - 1);
+        }
+    }
+
+    public HeapValueChangeStore(Timeline timeline) {
+        this(timeline, false);
+    }
+
+    public HeapValueChangeStore(Timeline timeline, boolean real) {
+        super(timeline);
+        this.table = timeline.getTimeTable();
+        if (real) {
+            reals = new double[INITIAL_CAPACITY];
+            realRanges = new RealRangeIndex();
+        } else {
+            valueCodes = new int[INITIAL_CAPACITY];
+        }
+        if (table == null)
+            times = new long[INITIAL_CAPACITY];
+        else
+            shortTimeIndices = new char[INITIAL_CAPACITY];
+    }
+
+    private static int scalarCode(String value) {
+        if (value.length() != 1)
+            return -1;
+        switch (value.charAt(0)) {
+            case '0':
+                return 0;
+            case '1':
+                return 1;
+            case 'x':
+                return 2;
+            case 'z':
+                return 3;
+            case 'X':
+                return 4;
+            case 'Z':
+                return 5;
+            default:
+                return -1;
+        }
+    }
+
+    @Override
+    public synchronized void addChange(long time, String numStr) {
+        if (replacesLastChange(time))
+            dropLastChange();
+        if (reals != null) {
+            addReal(time, WavevizUtilities.parseReal(numStr));
+            return;
+        }
+        var openRun = runCount > 0 && runs[runCount - 1].explicitBefore == count ? runs[runCount - 1] : null;
+        int lastCode = openRun != null ? openRun.codeAt(openRun.length - 1) : count > 0 ? valueCodes[count - 1] : Integer.MAX_VALUE;
+        int code = scalarCode(numStr);
+        if (code >= 0) {
+            if (code == lastCode)
+                return;
+            if (openRun != null && code == openRun.codeAt(openRun.length) && time == openRun.timeAt(openRun.length)) {
+                openRun.length++;
+                runTotal++;
+                return;
+            }
+        } else {
+            int packedSize = numStr.length() > 1 ? PackedValue.packedSize(numStr) : 0;
+            if (packedSize > 0) {
+                if (arenaLength + packedSize > arena.length)
+                    arena = Arrays.copyOf(arena, Math.max(Math.max(16, arenaLength + packedSize), arena.length * 2));
+                PackedValue.pack(numStr, arena, arenaLength, packedSize);
+                if (lastCode < 0 && PackedValue.packedSizeAt(arena, ~lastCode) == packedSize
+                        && PackedValue.packedEquals(arena, ~lastCode, arenaLength, packedSize))
+                    return;
+                code = ~arenaLength;
+                arenaLength += packedSize;
+            } else {
+                if (lastCode >= SCALAR_VALUES.length && lastCode != Integer.MAX_VALUE
+                        && strings[lastCode - SCALAR_VALUES.length].equals(numStr))
+                    return;
+                if (stringCount == strings.length)
+                    strings = Arrays.copyOf(strings, Math.max(INITIAL_CAPACITY, stringCount * 2));
+                code = SCALAR_VALUES.length + stringCount;
+                strings[stringCount++] = numStr;
+            }
+        }
+        ensureCapacity();
+        storeTime(time);
+        valueCodes[count] = code;
+        count++;
+        trackPeriodicTail();
+    }
+
+    // Looks at the open run or the last explicit change directly instead of searching the runs.
+    @Override
+    protected boolean replacesLastChange(long time) {
+        var openRun = runCount > 0 && runs[runCount - 1].explicitBefore == count ? runs[runCount - 1] : null;
+        if (openRun != null)
+            return openRun.timeAt(openRun.length - 1) == time;
+        return count > 0 && explicitTimeAt(count - 1) == time;
+    }
+
+    // Drops the last change, giving back the string or arena words it added if nothing was added after them.
+    private void dropLastChange() {
+        var openRun = runCount > 0 && runs[runCount - 1].explicitBefore == count ? runs[runCount - 1] : null;
+        if (openRun != null) {
+            openRun.length--;
+            runTotal--;
+            if (openRun.length == 0)
+                runs[--runCount] = null;
+        } else {
+            count--;
+            if (reals != null) {
+                realRanges.truncate(reals, count);
+            } else {
+                int code = valueCodes[count];
+                if (code >= SCALAR_VALUES.length && code - SCALAR_VALUES.length == stringCount - 1)
+                    strings[--stringCount] = null;
+                else if (code < 0 && ~code + PackedValue.packedSizeAt(arena, ~code) == arenaLength)
+                    arenaLength = ~code;
+            }
+        }
+        periodicTail = 0;
+        lastChangeDropped();
+    }
+
+    private void addReal(long time, double value) {
+        if (count > 0 && Double.compare(reals[count - 1], value) == 0)
+            return;
+        ensureCapacity();
+        storeTime(time);
+        reals[count] = value;
+        realRanges.append(value, count);
+        count++;
+    }
+
+    private int capacity() {
+        return valueCodes != null ? valueCodes.length : reals.length;
+    }
+
+    // Makes room for one more explicit change in every column.
+    private void ensureCapacity() {
+        int capacity = capacity();
+        if (count < capacity)
+            return;
+        if (valueCodes != null)
+            valueCodes = Arrays.copyOf(valueCodes, capacity * 2);
+        else
+            reals = Arrays.copyOf(reals, capacity * 2);
+        if (times != null)
+            times = Arrays.copyOf(times, capacity * 2);
+        else if (shortTimeIndices != null)
+            shortTimeIndices = Arrays.copyOf(shortTimeIndices, capacity * 2);
+        else
+            timeIndices = Arrays.copyOf(timeIndices, capacity * 2);
+    }
+
+    private void storeTime(long time) {
+        if (table == null) {
+            times[count] = time;
+        } else {
+            int index = table.indexOf(time);
+            if (index < 0)
+                index = table.add(time);
+            if (shortTimeIndices != null && index > Character.MAX_VALUE) {
+                timeIndices = new int[capacity()];
+                for (int i = 0; i < count; i++)
+                    timeIndices[i] = shortTimeIndices[i];
+                shortTimeIndices = null;
+            }
+            if (shortTimeIndices != null)
+                shortTimeIndices[count] = (char) index;
+            else
+                timeIndices[count] = index;
+        }
+    }
+
+    // Extends the periodic tail by the change just appended, and turns it into a run once it is long enough.
+    private void trackPeriodicTail() {
+        int n = count - 1;
+        int code = valueCodes[n];
+        if (code < 0 || code >= SCALAR_VALUES.length) {
+            periodicTail = 0;
+            return;
+        }
+        boolean continues;
+        if (periodicTail < 2) {
+            continues = false;
+        } else if (periodicTail == 2) {
+            // Two alternating values with changes at strictly increasing times fix the period and the duty.
+            continues = code == valueCodes[n - 2] && explicitTimeAt(n - 2) < explicitTimeAt(n - 1) && explicitTimeAt(n - 1) < explicitTimeAt(n);
+        } else {
+            continues = code == valueCodes[n - 2] && explicitTimeAt(n) - explicitTimeAt(n - 2) == explicitTimeAt(n - 1) - explicitTimeAt(n - 3);
+        }
+        periodicTail = continues ? periodicTail + 1 : periodicTail >= 1 ? 2 : 1;
+        if (periodicTail < MIN_RUN_LENGTH)
+            return;
+
+        int first = count - MIN_RUN_LENGTH;
+        long startTime = explicitTimeAt(first);
+        var run = new Run(first + runTotal, first, startTime, explicitTimeAt(first + 2) - startTime,
+                explicitTimeAt(first + 1) - startTime, valueCodes[first], valueCodes[first + 1], MIN_RUN_LENGTH);
+        if (runCount == runs.length)
+            runs = Arrays.copyOf(runs, Math.max(INITIAL_CAPACITY, runCount * 2));
+        runs[runCount++] = run;
+        runTotal += MIN_RUN_LENGTH;
+        count = first;
+        periodicTail = 0;
+    }
+
+    private int timeIndexAt(int index) {
+        return shortTimeIndices != null ? shortTimeIndices[index] : timeIndices[index];
+    }
+
+    private long explicitTimeAt(int index) {
+        return table == null ? times[index] : table.timeAt(timeIndexAt(index));
+    }
+
+    private String codeToString(int code) {
+        if (code < 0) {
+            var value = new PackedValue();
+            value.set(arena, ~code);
+            return value.toString();
+        }
+        return code < SCALAR_VALUES.length ? SCALAR_VALUES[code] : strings[code - SCALAR_VALUES.length];
+    }
+
+    // Index of the last run starting at or before the change index, or -1.
+    private int runBeforeIndex(int index) {
+        int low = 0;
+        int high = runCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (runs[mid].firstIndex > index)
+                high = mid - 1;
+            else
+                low = mid + 1;
+        }
+        return high;
+    }
+
+    // Index of the last run starting at or before the time, or -1.
+    private int runBeforeTime(long time) {
+        int low = 0;
+        int high = runCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (runs[mid].startTime > time)
+                high = mid - 1;
+            else
+                low = mid + 1;
+        }
+        return high;
+    }
+
+    // Run holding the change, or null if it is stored explicitly.
+    private Run runAt(int index) {
+        int r = runBeforeIndex(index);
+        return r >= 0 && index - runs[r].firstIndex < runs[r].length ? runs[r] : null;
+    }
+
+    // Position among the explicit changes of a change that is not held by a run.
+    private int explicitIndex(int index) {
+        int r = runBeforeIndex(index);
+        return r < 0 ? index : runs[r].explicitBefore + index - runs[r].firstIndex - runs[r].length;
+    }
+
+    // Last explicit change in [from, to) at or before the time, or from - 1. With a table the time
+    // is translated into a table index once and then only indices are compared.
+    private int searchExplicit(int from, int to, long time) {
+        int target = table == null ? 0 : table.floorIndex(time);
+        int low = from;
+        int high = to - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (table == null ? times[mid] > time : timeIndexAt(mid) > target)
+                high = mid - 1;
+            else
+                low = mid + 1;
+        }
+        return high;
+    }
+
+    @Override
+    protected int size() {
+        return count + runTotal;
+    }
+
+    @Override
+    protected long timeAt(int index) {
+        var run = runAt(index);
+        if (run != null)
+            return run.timeAt(index - run.firstIndex);
+        return explicitTimeAt(explicitIndex(index));
+    }
+
+    // Finds the run starting last at or before the time, then looks only at the explicit changes
+    // between it and the next run, so a lookup is logarithmic in both.
+    @Override
+    protected int searchStartingTime(long time) {
+        int r = runBeforeTime(time);
+        int from = r < 0 ? 0 : runs[r].explicitBefore;
+        int to = r + 1 < runCount ? runs[r + 1].explicitBefore : count;
+        int explicit = searchExplicit(from, to, time);
+        if (r < 0)
+            return Math.max(explicit, 0);
+        var run = runs[r];
+        if (explicit >= from)
+            return run.firstIndex + run.length + explicit - from;
+        return run.firstIndex + run.floorIndex(time);
+    }
+
+    @Override
+    protected String valueAt(int index) {
+        if (reals != null)
+            return WavevizUtilities.formatReal(reals[index]);
+        var run = runAt(index);
+        if (run != null)
+            return SCALAR_VALUES[run.codeAt(index - run.firstIndex)];
+        return codeToString(valueCodes[explicitIndex(index)]);
+    }
+
+    @Override
+    protected void fillSpan(int index, ValueSpan span, long startTime, long endTime) {
+        if (reals != null) {
+            span.setReal(reals[index], startTime, endTime);
+            return;
+        }
+        var run = runAt(index);
+        int code = run != null ? run.codeAt(index - run.firstIndex) : valueCodes[explicitIndex(index)];
+        if (code < 0)
+            span.setPacked(arena, ~code, startTime, endTime);
+        else
+            span.set(codeToString(code), startTime, endTime);
+    }
+
+    @Override
+    protected boolean realRange(int from, int to, double[] range) {
+        if (reals == null)
+            return super.realRange(from, to, range);
+        return realRanges.query(reals, from, to, range);
+    }
+
+    // Answered from the value codes, so that summarizing never builds strings.
+    @Override
+    protected boolean isUnknownAt(int index) {
+        if (reals != null)
+            return false;
+        var run = runAt(index);
+        int code = run != null ? run.codeAt(index - run.firstIndex) : valueCodes[explicitIndex(index)];
+        if (code < 0)
+            return !PackedValue.isKnownAt(arena, ~code);
+        return code < SCALAR_VALUES.length ? code >= 2 : super.isUnknownAt(index);
+    }
+}
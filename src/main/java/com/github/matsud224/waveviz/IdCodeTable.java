@@ -0,0 +1,66 @@
+package com.github.matsud224.waveviz;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+// Maps VCD identifier codes to store indices without allocating or hashing in the common case.
+// Codes are printable ASCII ('!' to '~'), so they are decoded as bijective base-94 numbers with
+// the first character as the least significant digit, which is how simulators usually number them.
+// Codes that are too long or far outside the declared range are kept in a fallback map.
+final class IdCodeTable {
+    private static final int RADIX = 94;
+    private static final int MAX_DECODED_LENGTH = 4;
+    private static final int MIN_TABLE_SIZE = 1024;
+    private static final int MAX_TABLE_SIZE = 1 << 24;
+
+    private final int[] table;
+    private final HashMap<String, Integer> fallback = new HashMap<>();
+
+    IdCodeTable(Map<String, Integer> storeIndexMap) {
+        int limit = (int) Math.min(MAX_TABLE_SIZE, Math.max(MIN_TABLE_SIZE, 4L * storeIndexMap.size()));
+        int size = 0;
+        for (var code : storeIndexMap.keySet()) {
+            var bytes = code.getBytes(StandardCharsets.UTF_8);
+            int value = decode(bytes, bytes.length);
+            if (value >= 0 && value < limit)
+                size = Math.max(size, value + 1);
+        }
+
+        // Entries hold the store index plus one, so that 0 means an unknown code.
+        table = new int[size];
+        storeIndexMap.forEach((code, storeIndex) -> {
+            var bytes = code.getBytes(StandardCharsets.UTF_8);
+            int value = decode(bytes, bytes.length);
+            if (value >= 0 && value < table.length)
+                table[value] = storeIndex + 1;
+            else
+                fallback.put(code, storeIndex);
+        });
+    }
+
+    // Returns -1 if the code is not decodable.
+    private static int decode(byte[] code, int length) {
+        if (length == 0 || length > MAX_DECODED_LENGTH)
+            return -1;
+        int value = 0;
+        for (int i = length - 1; i >= 0; i--) {
+            int digit = code[i] - '!';
+            if (digit < 0 || digit >= RADIX)
+                return -1;
+            value = value * RADIX + digit + 1;
+        }
+        return value - 1;
+    }
+
+    // Returns the store index of a code, or -1 if it has not been declared.
+    int lookup(byte[] code, int length) {
+        int value = decode(code, length);
+        if (value >= 0 && value < table.length)
+            return table[value] - 1;
+        if (fallback.isEmpty())
+            return -1;
+        var storeIndex = fallback.get(new String(code, 0, length, StandardCharsets.UTF_8));
+        return storeIndex == null ? -1 : storeIndex;
+    }
+}
@@ -0,0 +1,142 @@
+package com.github.matsud224.waveviz;
+
+import java.awt.*;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Shortens labels to fit a width without measuring each candidate string. The advances of the
+// Latin-1 glyphs are looked up once per font; FontMetrics.stringWidth adds the same advances and
+// rounds the sum, so the widths computed here match it exactly. Truncated labels are kept per text
+// and prefix length, so every width that cuts a label at the same place shares one string.
+final class LabelFitter {
+    private static final int MAX_FITTERS = 16;
+    private static final int CACHE_SIZE = 1024;
+    private static final ConcurrentHashMap<FontMetrics, LabelFitter> fitters = new ConcurrentHashMap<>();
+
+    private final FontMetrics metrics;
+    private final float[] advances = new float[256];
+    // Set when all printable ASCII glyphs have the same whole-pixel advance.
+    private final boolean monospace;
+    // Kerning and ligatures make stringWidth lay the text out as a whole.
+    private final boolean laidOut;
+    private final LinkedHashMap<String, String[]> truncated = new LinkedHashMap<>(256, 0.75f, true);
+
+    static LabelFitter of(FontMetrics metrics) {
+        var fitter = fitters.get(metrics);
+        if (fitter == null) {
+            if (fitters.size() >= MAX_FITTERS)
+                fitters.clear();
+            fitter = fitters.computeIfAbsent(metrics, LabelFitter::new);
+        }
+        return fitter;
+    }
+
+    private LabelFitter(FontMetrics metrics) {
+        this.metrics = metrics;
+        var font = metrics.getFont();
+        var frc = metrics.getFontRenderContext();
+        var chars = new char[advances.length];
+        for (int c = 0; c < chars.length; c++)
+            chars[c] = (char) c;
+        for (int c = 0; c < chars.length; c++)
+            advances[c] = (float) font.getStringBounds(chars, c, c + 1, frc).getWidth();
+
+        boolean sameAdvance = advances[' '] == Math.rint(advances[' ']);
+        for (int c = ' ' + 1; c < 0x7f && sameAdvance; c++)
+            sameAdvance = advances[c] == advances[' '];
+        monospace = sameAdvance;
+        laidOut = font.hasLayoutAttributes();
+    }
+
+    String fit(String text, String continuation, int width) {
+        int length = text.length();
+        if (laidOut || !isLatin1(text) || !isLatin1(continuation))
+            return fitByMeasuring(text, continuation, width);
+
+        if (monospace && isPrintableAscii(text) && isPrintableAscii(continuation)) {
+            int advance = (int) advances[' '];
+            if (length * advance <= width)
+                return text;
+            int fitting = advance == 0 ? 0 : (width - continuation.length() * advance) / advance;
+            return truncate(text, continuation, Math.min(fitting, length - 1));
+        }
+
+        float textWidth = 0;
+        for (int i = 0; i < length; i++)
+            textWidth += advances[text.charAt(i)];
+        if (round(textWidth) <= width)
+            return text;
+
+        // The width of a prefix with the continuation grows with the prefix, so the longest one
+        // that fits is the last one before the first that does not.
+        int fitting = 0;
+        float prefixWidth = 0;
+        for (int i = 1; i < length; i++) {
+            prefixWidth += advances[text.charAt(i - 1)];
+            float labelWidth = prefixWidth;
+            for (int j = 0; j < continuation.length(); j++)
+                labelWidth += advances[continuation.charAt(j)];
+            if (round(labelWidth) > width)
+                break;
+            fitting = i;
+        }
+        return truncate(text, continuation, fitting);
+    }
+
+    private String truncate(String text, String continuation, int prefixLength) {
+        if (prefixLength < 1)
+            return "";
+        synchronized (this) {
+            var labels = truncated.get(text);
+            if (labels == null) {
+                labels = new String[text.length()];
+                truncated.put(text, labels);
+                if (truncated.size() > CACHE_SIZE)
+                    truncated.remove(truncated.keySet().iterator().next());
+            }
+            var label = labels[prefixLength];
+            if (label == null || label.length() != prefixLength + continuation.length() || !label.endsWith(continuation)) {
+                label = text.substring(0, prefixLength) + continuation;
+                labels[prefixLength] = label;
+            }
+            return label;
+        }
+    }
+
+    // Text outside Latin-1 may also be laid out as a whole. The width still grows with the prefix.
+    private String fitByMeasuring(String text, String continuation, int width) {
+        if (metrics.stringWidth(text) <= width)
+            return text;
+        int low = 0;
+        int high = text.length() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) / 2;
+            if (metrics.stringWidth(text.substring(0, middle) + continuation) <= width)
+                low = middle;
+            else
+                high = middle - 1;
+        }
+        return truncate(text, continuation, low);
+    }
+
+    private static int round(float width) {
+        return (int) (0.5 + width);
+    }
+
+    private static boolean isLatin1(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x100)
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean isPrintableAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < ' ' || c >= 0x7f)
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,50 @@
+package com.github.matsud224.waveviz;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class MappedFileByteSource implements VCDByteSource {
+    private static final long WINDOW_SIZE = 1L << 28;
+
+    private final FileChannel channel;
+    private final long start;
+    private final long end;
+    private long position;
+
+    public MappedFileByteSource(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.start = 0;
+        this.end = channel.size();
+        this.position = 0;
+    }
+
+    public MappedFileByteSource(Path path, long start, long end) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.start = start;
+        this.end = Math.min(end, channel.size());
+        this.position = start;
+    }
+
+    @Override
+    public ByteBuffer next() throws IOException {
+        if (position >= end)
+            return null;
+        long size = Math.min(WINDOW_SIZE, end - position);
+        var buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        position += size;
+        return buffer;
+    }
+
+    @Override
+    public long length() {
+        return end - start;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,61 @@
+package com.github.matsud224.waveviz;
+
+// Read-only store whose columns live in a memory-mapped sidecar cache.
+public class MappedValueChangeStore extends ValueChangeStore {
+    private final SidecarCache.MappedFile file;
+    private final long timesOffset;
+    private final long valueIdsOffset;
+    private final int count;
+    private final int valueIdWidth;
+    private final int timeWidth;
+
+    MappedValueChangeStore(Timeline timeline, SidecarCache.MappedFile file, long timesOffset, long valueIdsOffset, int count, int valueIdWidth, int timeWidth) {
+        super(timeline);
+        this.file = file;
+        this.timesOffset = timesOffset;
+        this.valueIdsOffset = valueIdsOffset;
+        this.count = count;
+        this.valueIdWidth = valueIdWidth;
+        this.timeWidth = timeWidth;
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    @Override
+    public void addChange(long time, String numStr) {
+        throw new IllegalStateException("signals of a dump opened from its cache are read-only");
+    }
+
+    @Override
+    protected int size() {
+        return count;
+    }
+
+    @Override
+    protected long timeAt(int index) {
+        if (timeWidth == 4)
+            return file.getInt(timesOffset + 4L * index);
+        return file.getLong(timesOffset + 8L * index);
+    }
+
+    @Override
+    protected String valueAt(int index) {
+        long position = valueIdsOffset + (long) valueIdWidth * index;
+        int id;
+        if (valueIdWidth == 8) {
+            long reference = file.getLong(position);
+            if (reference < 0)
+                return file.getString(~reference);
+            id = (int) reference;
+        } else if (valueIdWidth == 1)
+            id = file.getUnsignedByte(position);
+        else if (valueIdWidth == 2)
+            id = file.getUnsignedShort(position);
+        else
+            id = file.getInt(position);
+        return file.getPooledString(id);
+    }
+}
@@ -5,11 +5,11 @@ import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 
 public class Marker {
-    private int time;
+    private long time;
     private Color color;
     private final PropertyChangeSupport pcs = new PropertyChangeSupport(this);
 
-    public Marker(int time, Color color) {
+    public Marker(long time, Color color) {
         this.time = time;
         this.color = color;
     }
@@ -22,11 +22,11 @@ public class Marker {
         this.pcs.removePropertyChangeListener(listener);
     }
 
-    public int getTime() {
+    public long getTime() {
         return time;
     }
 
-    public void setTime(int time) {
+    public void setTime(long time) {
         this.time = time;
         this.pcs.firePropertyChange(WaveViewModel.MARKER_PROPERTY, null, null);
     }
@@ -0,0 +1,52 @@
+package com.github.matsud224.waveviz;
+
+import java.util.LinkedHashMap;
+
+// Remembers what a formatter made of the most recently used values, for formatters that are pure
+// functions of the value but costly to call, such as Ruby blocks. Repainting the same values then
+// costs a lookup. Replacing the formatter drops its memo along with it.
+final class MemoizingFormatter implements ValueFormatter {
+    private static final int CAPACITY = 4096;
+
+    private final ValueFormatter formatter;
+    private final LinkedHashMap<String, String> memo = new LinkedHashMap<>(256, 0.75f, true);
+    private long hits = 0;
+    private long misses = 0;
+
+    MemoizingFormatter(ValueFormatter formatter) {
+        this.formatter = formatter;
+    }
+
+    @Override
+    public String format(String value) {
+        synchronized (this) {
+            var formatted = memo.get(value);
+            if (formatted != null) {
+                hits++;
+                return formatted;
+            }
+            misses++;
+        }
+        // Not called with the lock held, so that painters do not wait for each other's calls to
+        // format values that are already memoized.
+        var formatted = formatter.format(value);
+        synchronized (this) {
+            memo.put(value, formatted);
+            if (memo.size() > CAPACITY)
+                memo.remove(memo.keySet().iterator().next());
+        }
+        return formatted;
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    synchronized int size() {
+        return memo.size();
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.matsud224.waveviz;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Bump allocator over direct buffers, and over memory-mapped temporary files once the direct
+// buffers reach the memory budget. Blocks never straddle segments and are never freed; the whole
+// arena goes away with the dump it belongs to.
+final class OffHeapArena {
+    private static final int DIRECT_SEGMENT_SIZE = 16 << 20;
+    private static final int MAPPED_SEGMENT_SIZE = 256 << 20;
+
+    private final long memoryBudget;
+    private volatile ByteBuffer[] segments = new ByteBuffer[0];
+    private ByteBuffer current;
+    private int currentIndex = -1;
+    private int used = 0;
+    private long directBytes = 0;
+    private boolean directExhausted = false;
+
+    OffHeapArena(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    // Returns a reference to a block of the given size, to be resolved with segment() and offset().
+    synchronized long allocate(int size) {
+        if (current == null || current.capacity() - used < size)
+            addSegment(size);
+        long reference = (long) (currentIndex + 1) << 32 | used;
+        used += (size + 7) & ~7;
+        return reference;
+    }
+
+    // References are never below 2^32, so smaller values are free for callers to use as tags.
+    static boolean isReference(long value) {
+        return value >= 1L << 32;
+    }
+
+    ByteBuffer segment(long reference) {
+        return segments[(int) (reference >>> 32) - 1];
+    }
+
+    static int offset(long reference) {
+        return (int) reference;
+    }
+
+    private void addSegment(int minimumSize) {
+        ByteBuffer segment = null;
+        if (!directExhausted && directBytes + DIRECT_SEGMENT_SIZE <= memoryBudget && minimumSize <= DIRECT_SEGMENT_SIZE) {
+            try {
+                segment = ByteBuffer.allocateDirect(DIRECT_SEGMENT_SIZE);
+                directBytes += DIRECT_SEGMENT_SIZE;
+            } catch (OutOfMemoryError e) {
+                // The JVM limits direct memory to the heap size unless -XX:MaxDirectMemorySize is given.
+                directExhausted = true;
+            }
+        }
+        if (segment == null) {
+            int size = Math.max(MAPPED_SEGMENT_SIZE, minimumSize);
+            // The file is deleted once the channel is closed, while the mapping stays valid.
+            try {
+                var path = Files.createTempFile("waveviz", ".heap");
+                path.toFile().deleteOnExit();
+                try (var channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                        StandardOpenOption.DELETE_ON_CLOSE)) {
+                    segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("failed to extend off-heap storage", e);
+            }
+        }
+        segment.order(ByteOrder.nativeOrder());
+        var newSegments = Arrays.copyOf(segments, segments.length + 1);
+        newSegments[segments.length] = segment;
+        segments = newSegments;
+        current = segment;
+        currentIndex = newSegments.length - 1;
+        used = 0;
+    }
+}
@@ -0,0 +1,200 @@
+package com.github.matsud224.waveviz;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Keeps changes outside of the Java heap, in pages allocated from an OffHeapArena. Each change is
+// a 16-byte record of its time and a value reference. Scalar 0/1/x/z values are stored in the
+// reference itself, other values in blocks of the arena: vectors of 0/1/x/z in the bit-plane
+// layout of PackedValue, anything else as a length-prefixed UTF-8 string.
+public class OffHeapValueChangeStore extends ValueChangeStore {
+    private static final String[] SCALAR_VALUES = {"0", "1", "x", "z"};
+    private static final int RECORD_SIZE = 16;
+    // Pages double in size up to MAX_PAGE_RECORDS, so that signals with few changes stay small.
+    private static final int FIRST_PAGE_RECORDS = 16;
+    private static final int DOUBLING_PAGES = 13;
+    private static final int MAX_PAGE_RECORDS = FIRST_PAGE_RECORDS << (DOUBLING_PAGES - 1);
+    private static final int DOUBLING_RECORDS = FIRST_PAGE_RECORDS * ((1 << DOUBLING_PAGES) - 1);
+    private static final long STRING_FLAG = 1L << 33;
+    private static final ThreadLocal<long[]> scratch = ThreadLocal.withInitial(() -> new long[64]);
+
+    private final OffHeapArena arena;
+    private final boolean real;
+    private ByteBuffer[] pageBuffers = new ByteBuffer[0];
+    private int[] pageOffsets = new int[0];
+    private int count = 0;
+    private long lastValue = -1;
+
+    OffHeapValueChangeStore(Timeline timeline, OffHeapArena arena, boolean real) {
+        super(timeline);
+        this.arena = arena;
+        this.real = real;
+    }
+
+    private static int scalarCode(String value) {
+        if (value.length() != 1)
+            return -1;
+        switch (value.charAt(0)) {
+            case '0':
+                return 0;
+            case '1':
+                return 1;
+            case 'x':
+                return 2;
+            case 'z':
+                return 3;
+            default:
+                return -1;
+        }
+    }
+
+    @Override
+    public synchronized void addChange(long time, String numStr) {
+        if (real)
+            numStr = WavevizUtilities.formatReal(WavevizUtilities.parseReal(numStr));
+        // The arena space of a dropped value is not reused.
+        if (replacesLastChange(time)) {
+            count--;
+            lastValue = count > 0 ? valueReferenceAt(count - 1) : -1;
+            lastChangeDropped();
+        }
+        long value = scalarCode(numStr);
+        if (value >= 0) {
+            if (value == lastValue)
+                return;
+        } else {
+            int packedSize = numStr.length() > 1 ? PackedValue.packedSize(numStr) : 0;
+            value = packedSize > 0 ? storePacked(numStr, packedSize) : storeString(numStr);
+            if (value < 0)
+                return;
+        }
+        int page = pageOf(count);
+        if (page == pageBuffers.length)
+            addPage();
+        int position = pageOffsets[page] + RECORD_SIZE * (count - pageStart(page));
+        pageBuffers[page].putLong(position, time);
+        pageBuffers[page].putLong(position + 8, value);
+        count++;
+        lastValue = value;
+    }
+
+    // Returns -1 if the value equals the previous one.
+    private long storePacked(String numStr, int packedSize) {
+        var words = scratch.get();
+        if (words.length < packedSize) {
+            words = new long[Math.max(packedSize, words.length * 2)];
+            scratch.set(words);
+        }
+        PackedValue.pack(numStr, words, 0, packedSize);
+        if (OffHeapArena.isReference(lastValue)) {
+            var buffer = arena.segment(lastValue);
+            int offset = OffHeapArena.offset(lastValue);
+            int i = 0;
+            while (i < packedSize && buffer.getLong(offset + 8 * i) == words[i])
+                i++;
+            if (i == packedSize)
+                return -1;
+        }
+        long reference = arena.allocate(8 * packedSize);
+        var buffer = arena.segment(reference);
+        int offset = OffHeapArena.offset(reference);
+        for (int i = 0; i < packedSize; i++)
+            buffer.putLong(offset + 8 * i, words[i]);
+        return reference;
+    }
+
+    private long storeString(String numStr) {
+        var bytes = numStr.getBytes(StandardCharsets.UTF_8);
+        if (OffHeapArena.isReference(lastValue) && Arrays.equals(bytes, stringBytes(lastValue)))
+            return -1;
+        long reference = arena.allocate(8 + bytes.length);
+        var buffer = arena.segment(reference);
+        int offset = OffHeapArena.offset(reference);
+        buffer.putLong(offset, STRING_FLAG | bytes.length);
+        buffer.duplicate().position(offset + 8).put(bytes);
+        return reference;
+    }
+
+    // Returns null for a packed value.
+    private byte[] stringBytes(long reference) {
+        var buffer = arena.segment(reference);
+        int offset = OffHeapArena.offset(reference);
+        long header = buffer.getLong(offset);
+        if ((header & STRING_FLAG) == 0)
+            return null;
+        var bytes = new byte[(int) header];
+        buffer.duplicate().position(offset + 8).get(bytes);
+        return bytes;
+    }
+
+    private static int pageOf(int index) {
+        if (index < DOUBLING_RECORDS)
+            return 31 - Integer.numberOfLeadingZeros(index / FIRST_PAGE_RECORDS + 1);
+        return DOUBLING_PAGES + (index - DOUBLING_RECORDS) / MAX_PAGE_RECORDS;
+    }
+
+    private static int pageStart(int page) {
+        if (page < DOUBLING_PAGES)
+            return FIRST_PAGE_RECORDS * ((1 << page) - 1);
+        return DOUBLING_RECORDS + (page - DOUBLING_PAGES) * MAX_PAGE_RECORDS;
+    }
+
+    private void addPage() {
+        int page = pageBuffers.length;
+        int records = page < DOUBLING_PAGES ? FIRST_PAGE_RECORDS << page : MAX_PAGE_RECORDS;
+        long reference = arena.allocate(RECORD_SIZE * records);
+        pageBuffers = Arrays.copyOf(pageBuffers, page + 1);
+        pageOffsets = Arrays.copyOf(pageOffsets, page + 1);
+        pageBuffers[page] = arena.segment(reference);
+        pageOffsets[page] = OffHeapArena.offset(reference);
+    }
+
+    private int recordPosition(int index, int page) {
+        return pageOffsets[page] + RECORD_SIZE * (index - pageStart(page));
+    }
+
+    @Override
+    protected int size() {
+        return count;
+    }
+
+    @Override
+    protected long timeAt(int index) {
+        int page = pageOf(index);
+        return pageBuffers[page].getLong(recordPosition(index, page));
+    }
+
+    private long valueReferenceAt(int index) {
+        int page = pageOf(index);
+        return pageBuffers[page].getLong(recordPosition(index, page) + 8);
+    }
+
+    @Override
+    protected String valueAt(int index) {
+        long value = valueReferenceAt(index);
+        if (!OffHeapArena.isReference(value))
+            return SCALAR_VALUES[(int) value];
+        var bytes = stringBytes(value);
+        if (bytes != null)
+            return new String(bytes, StandardCharsets.UTF_8);
+        var packed = new PackedValue();
+        packed.set(arena.segment(value), OffHeapArena.offset(value));
+        return packed.toString();
+    }
+
+    @Override
+    protected void fillSpan(int index, ValueSpan span, long startTime, long endTime) {
+        long value = valueReferenceAt(index);
+        if (!OffHeapArena.isReference(value)) {
+            span.set(SCALAR_VALUES[(int) value], startTime, endTime);
+            return;
+        }
+        var buffer = arena.segment(value);
+        int offset = OffHeapArena.offset(value);
+        if ((buffer.getLong(offset) & STRING_FLAG) != 0)
+            span.set(valueAt(index), startTime, endTime);
+        else
+            span.setPacked(buffer, offset, startTime, endTime);
+    }
+}
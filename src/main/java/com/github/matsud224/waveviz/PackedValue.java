@@ -0,0 +1,163 @@
+package com.github.matsud224.waveviz;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+// View of a 4-state vector stored as two bit planes in a long[] arena or an off-heap buffer. The first word holds the
+// width and whether the unknown plane is present, followed by the value plane and, if any bit is
+// x or z, the unknown plane. Bit 0 of the planes is the last character of the binary string.
+// An unknown bit is x if its value bit is 0, z if it is 1.
+public final class PackedValue implements CharSequence {
+    private static final long HAS_UNKNOWN = 1L << 32;
+
+    private long[] arena;
+    private ByteBuffer buffer;
+    private int offset;
+
+    void set(long[] arena, int offset) {
+        this.arena = arena;
+        this.buffer = null;
+        this.offset = offset;
+    }
+
+    // The offset is in bytes here, and the words are in the buffer's byte order.
+    void set(ByteBuffer buffer, int offset) {
+        this.arena = null;
+        this.buffer = buffer;
+        this.offset = offset;
+    }
+
+    private long word(int index) {
+        return buffer != null ? buffer.getLong(offset + 8 * index) : arena[offset + index];
+    }
+
+    // Returns 0 if the value contains characters other than 0, 1, x and z.
+    static int packedSize(String binary) {
+        boolean hasUnknown = false;
+        for (int i = 0; i < binary.length(); i++) {
+            char c = binary.charAt(i);
+            if (c == 'x' || c == 'z')
+                hasUnknown = true;
+            else if (c != '0' && c != '1')
+                return 0;
+        }
+        int words = (binary.length() + 63) / 64;
+        return 1 + (hasUnknown ? 2 * words : words);
+    }
+
+    // Writes a value accepted by packedSize() at the given offset.
+    static void pack(String binary, long[] arena, int offset, int size) {
+        int width = binary.length();
+        int words = (width + 63) / 64;
+        boolean hasUnknown = size > 1 + words;
+        arena[offset] = width | (hasUnknown ? HAS_UNKNOWN : 0);
+        for (int j = 0; j < words; j++) {
+            long value = 0;
+            long unknown = 0;
+            int low = width - 1 - 64 * j;
+            int high = Math.max(0, low - 63);
+            for (int i = high; i <= low; i++) {
+                char c = binary.charAt(i);
+                value = value << 1 | (c == '1' || c == 'z' ? 1 : 0);
+                unknown = unknown << 1 | (c == 'x' || c == 'z' ? 1 : 0);
+            }
+            arena[offset + 1 + j] = value;
+            if (hasUnknown)
+                arena[offset + 1 + words + j] = unknown;
+        }
+    }
+
+    static boolean packedEquals(long[] arena, int offset, int otherOffset, int size) {
+        for (int i = 0; i < size; i++) {
+            if (arena[offset + i] != arena[otherOffset + i])
+                return false;
+        }
+        return true;
+    }
+
+    static int packedSizeAt(long[] arena, int offset) {
+        long header = arena[offset];
+        int words = ((int) header + 63) / 64;
+        return 1 + ((header & HAS_UNKNOWN) != 0 ? 2 * words : words);
+    }
+
+    static boolean isKnownAt(long[] arena, int offset) {
+        return (arena[offset] & HAS_UNKNOWN) == 0;
+    }
+
+    public int getWidth() {
+        return (int) word(0);
+    }
+
+    // True if no bit is x or z.
+    public boolean isKnown() {
+        return (word(0) & HAS_UNKNOWN) == 0;
+    }
+
+    long valueWord(int j) {
+        return word(1 + j);
+    }
+
+    private long unknownWord(int j) {
+        return isKnown() ? 0 : word(1 + (getWidth() + 63) / 64 + j);
+    }
+
+    // Bits counted from the least significant one.
+    public boolean valueBit(int bit) {
+        return (valueWord(bit >>> 6) >>> (bit & 63) & 1) != 0;
+    }
+
+    public boolean unknownBit(int bit) {
+        return (unknownWord(bit >>> 6) >>> (bit & 63) & 1) != 0;
+    }
+
+    @Override
+    public int length() {
+        return getWidth();
+    }
+
+    // Character at the given index of the binary string, most significant bit first.
+    @Override
+    public char charAt(int index) {
+        int bit = getWidth() - 1 - index;
+        if (unknownBit(bit))
+            return valueBit(bit) ? 'z' : 'x';
+        return valueBit(bit) ? '1' : '0';
+    }
+
+    public int popCount() {
+        int count = 0;
+        int words = (getWidth() + 63) / 64;
+        for (int j = 0; j < words; j++)
+            count += Long.bitCount(valueWord(j) & ~unknownWord(j));
+        return count;
+    }
+
+    public Optional<BigInteger> toBigInteger() {
+        if (!isKnown())
+            return Optional.empty();
+        int words = (getWidth() + 63) / 64;
+        var bytes = new byte[words * 8 + 1];
+        for (int j = 0; j < words; j++) {
+            long word = valueWord(j);
+            for (int k = 0; k < 8; k++)
+                bytes[bytes.length - 1 - 8 * j - k] = (byte) (word >>> (8 * k));
+        }
+        return Optional.of(new BigInteger(bytes));
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        int width = getWidth();
+        var chars = new char[width];
+        for (int i = 0; i < width; i++)
+            chars[i] = charAt(i);
+        return new String(chars);
+    }
+}
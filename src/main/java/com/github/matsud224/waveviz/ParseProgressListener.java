@@ -0,0 +1,10 @@
+package com.github.matsud224.waveviz;
+
+// Called from the parsing thread.
+public interface ParseProgressListener {
+    void definitionsParsed(VCDParser.ParseResult result);
+
+    void progressed(long bytesConsumed, long totalBytes, long changeCount);
+
+    boolean isCancelled();
+}
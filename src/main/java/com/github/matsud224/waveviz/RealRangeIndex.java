@@ -0,0 +1,122 @@
+package com.github.matsud224.waveviz;
+
+import java.util.Arrays;
+
+// Smallest and largest value of any index range of an append-only column of reals, so that drawing
+// a zoomed-out analog trace costs a few lookups per pixel column instead of a pass over the samples.
+// Level k keeps the extremes of aligned groups of 2^(k + GROUP_BITS) values. NaN values are ignored.
+// The last value may be taken back by truncate when a later one at the same time replaces it.
+final class RealRangeIndex {
+    private static final int GROUP_BITS = 4;
+    private static final int GROUP_SIZE = 1 << GROUP_BITS;
+
+    private double[][] mins = new double[0][];
+    private double[][] maxs = new double[0][];
+
+    // Must be called for every value, in index order.
+    void append(double value, int index) {
+        int group = index >>> GROUP_BITS;
+        for (int level = 0; ; level++, group >>>= 1) {
+            if (level == mins.length) {
+                mins = Arrays.copyOf(mins, level + 1);
+                maxs = Arrays.copyOf(maxs, level + 1);
+                mins[level] = newLevel(Double.POSITIVE_INFINITY);
+                maxs[level] = newLevel(Double.NEGATIVE_INFINITY);
+                // The new top group also covers everything appended before it existed.
+                if (level > 0) {
+                    mins[level][0] = mins[level - 1][0];
+                    maxs[level][0] = maxs[level - 1][0];
+                }
+            }
+            if (group >= mins[level].length) {
+                mins[level] = grow(mins[level], Double.POSITIVE_INFINITY);
+                maxs[level] = grow(maxs[level], Double.NEGATIVE_INFINITY);
+            }
+            if (value < mins[level][group])
+                mins[level][group] = value;
+            if (value > maxs[level][group])
+                maxs[level][group] = value;
+            // The top level always has a single group covering everything appended so far.
+            if (group == 0 && index < GROUP_SIZE << level)
+                return;
+        }
+    }
+
+    // Forgets the values from index size on, so that append can continue there.
+    void truncate(double[] values, int size) {
+        for (int level = 0, group = size >>> GROUP_BITS; level < mins.length; level++, group >>>= 1) {
+            if (group >= mins[level].length)
+                continue;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            if (level == 0) {
+                for (int i = group << GROUP_BITS; i < size; i++) {
+                    if (values[i] < min)
+                        min = values[i];
+                    if (values[i] > max)
+                        max = values[i];
+                }
+            } else {
+                for (int child = group * 2; child <= group * 2 + 1 && child < mins[level - 1].length; child++) {
+                    min = Math.min(min, mins[level - 1][child]);
+                    max = Math.max(max, maxs[level - 1][child]);
+                }
+            }
+            mins[level][group] = min;
+            maxs[level][group] = max;
+        }
+    }
+
+    private static double[] newLevel(double fill) {
+        var level = new double[4];
+        Arrays.fill(level, fill);
+        return level;
+    }
+
+    private static double[] grow(double[] level, double fill) {
+        int length = level.length;
+        level = Arrays.copyOf(level, length * 2);
+        Arrays.fill(level, length, level.length, fill);
+        return level;
+    }
+
+    // Writes the extremes of values[from..to] to range[0] and range[1]. Returns false if the range
+    // holds only NaN.
+    boolean query(double[] values, int from, int to, double[] range) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        int low = from;
+        int high = to + 1;
+        // Comparisons rather than Math.min and Math.max, which would let a NaN through.
+        for (; low < high && (low & (GROUP_SIZE - 1)) != 0; low++) {
+            if (values[low] < min)
+                min = values[low];
+            if (values[low] > max)
+                max = values[low];
+        }
+        while (low < high && (high & (GROUP_SIZE - 1)) != 0) {
+            high--;
+            if (values[high] < min)
+                min = values[high];
+            if (values[high] > max)
+                max = values[high];
+        }
+        int lowGroup = low >>> GROUP_BITS;
+        int highGroup = high >>> GROUP_BITS;
+        for (int level = 0; lowGroup < highGroup; level++, lowGroup >>>= 1, highGroup >>>= 1) {
+            if ((lowGroup & 1) != 0) {
+                min = Math.min(min, mins[level][lowGroup]);
+                max = Math.max(max, maxs[level][lowGroup]);
+                lowGroup++;
+            }
+            if ((highGroup & 1) != 0) {
+                highGroup--;
+                min = Math.min(min, mins[level][highGroup]);
+                max = Math.max(max, maxs[level][highGroup]);
+            }
+        }
+        range[0] = min;
+        range[1] = max;
+        return min <= max;
+    }
+}
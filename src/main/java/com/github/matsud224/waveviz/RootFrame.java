@@ -14,10 +14,9 @@ import java.awt.event.ActionListener;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowListener;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.PushbackReader;
 import java.util.LinkedHashMap;
+import java.util.Optional;
 
 public class RootFrame extends JFrame implements ActionListener, WindowListener {
     private final LinkedHashMap<String, JMenu> menuMap;
@@ -25,6 +24,14 @@ public class RootFrame extends JFrame implements ActionListener, WindowListener
     private final PaneManager paneManager;
     private ParseResult parseResult;
     private final Waveviz wavevizObject;
+    private final StatusBar statusBar;
+    private final JCheckBoxMenuItem autoScrollMenuItem;
+    private final JCheckBoxMenuItem loadOnDemandMenuItem;
+    private final JCheckBoxMenuItem useCacheMenuItem;
+    private final JCheckBoxMenuItem offHeapMenuItem;
+    private final JCheckBoxMenuItem compressMenuItem;
+    private long memoryBudget = new VCDParser.ParseOptions().getMemoryBudget();
+    private VCDLoadWorker loadWorker;
 
     RootFrame() {
         setBounds(10, 10, 900, 600);
@@ -56,10 +63,21 @@ public class RootFrame extends JFrame implements ActionListener, WindowListener
         menuMap.forEach((k, v) -> menuBar.add(v));
 
         addMenuItem("File", "Open", "open");
+        addMenuItem("File", "Follow", "follow");
+        loadOnDemandMenuItem = new JCheckBoxMenuItem("Load Signals on Demand", false);
+        menuMap.get("File").add(loadOnDemandMenuItem);
+        useCacheMenuItem = new JCheckBoxMenuItem("Use Binary Cache", true);
+        menuMap.get("File").add(useCacheMenuItem);
+        offHeapMenuItem = new JCheckBoxMenuItem("Store Waveforms Off-Heap", false);
+        menuMap.get("File").add(offHeapMenuItem);
+        compressMenuItem = new JCheckBoxMenuItem("Compress Waveforms in Memory", false);
+        menuMap.get("File").add(compressMenuItem);
         addMenuItem("File", "Show Metadata", "show-metadata");
         addMenuItem("File", "Exit", "exit");
         addMenuItem("View", "Zoom In", "zoom-in");
         addMenuItem("View", "Zoom Out", "zoom-out");
+        autoScrollMenuItem = new JCheckBoxMenuItem("Auto Scroll", true);
+        menuMap.get("View").add(autoScrollMenuItem);
         addMenuItem("Help", "About", "about");
 
         RootMenuPiece paneListMenu = new RootMenuPiece("Panes", false);
@@ -80,6 +98,71 @@ public class RootFrame extends JFrame implements ActionListener, WindowListener
         waveViewToolbar.add(createToolbarButton("move-next-negedge", "move-next-negedge", "Move to next negative edge"));
         waveViewToolbar.setFloatable(true);
         getContentPane().add(waveViewToolbar, BorderLayout.PAGE_START);
+
+        statusBar = new StatusBar(this);
+        getContentPane().add(statusBar, BorderLayout.PAGE_END);
+    }
+
+    private void openFile(File file, boolean follow) {
+        boolean lazy = loadOnDemandMenuItem.isSelected();
+        boolean useCache = useCacheMenuItem.isSelected();
+        boolean offHeap = offHeapMenuItem.isSelected();
+        boolean compressed = compressMenuItem.isSelected();
+        long budget = memoryBudget;
+        startLoading(file.getName(), options -> {
+            options.setLazy(lazy);
+            options.setUseCache(useCache);
+            options.setOffHeap(offHeap);
+            options.setCompressed(compressed);
+            options.setMemoryBudget(budget);
+            options.setSignalsLoadedListener(() -> SwingUtilities.invokeLater(waveViewModel::notifyWaveformsUpdated));
+            // FST files are always read on demand and cannot be followed.
+            if (FSTReader.isFSTFile(file.toPath()))
+                return FSTReader.read(file.toPath(), file.getName(), options);
+            return VCDParser.parse(file.toPath(), file.getName(), options);
+        }, follow);
+    }
+
+    private void openStandardInput() {
+        boolean offHeap = offHeapMenuItem.isSelected();
+        boolean compressed = compressMenuItem.isSelected();
+        long budget = memoryBudget;
+        startLoading("stdin", options -> {
+            options.setOffHeap(offHeap);
+            options.setCompressed(compressed);
+            options.setMemoryBudget(budget);
+            return VCDParser.parse(new StreamByteSource(System.in), "stdin", options);
+        }, true);
+    }
+
+    private void startLoading(String name, VCDLoadWorker.Loader loader, boolean follow) {
+        if (loadWorker != null)
+            loadWorker.cancel(false);
+        loadWorker = new VCDLoadWorker(name, loader, follow, statusBar, result -> {
+            if (parseResult != null)
+                parseResult.close();
+            parseResult = result;
+            paneManager.getSignalFinderPane().setHierarchyModel(result.getHierarchy());
+            waveViewModel.setTimescale(result.getMetaData().getTimeScale());
+        }, () -> {
+            waveViewModel.notifyWaveformsUpdated();
+            if (autoScrollMenuItem.isSelected() && loadWorker != null && loadWorker.isFollowing())
+                paneManager.getWaveViewPane().scrollToEnd();
+        });
+        statusBar.showProgress((follow ? "Following " : "Loading ") + name, 0, -1);
+        loadWorker.execute();
+    }
+
+    private Optional<File> chooseFile(boolean follow) {
+        var fileChooser = new JFileChooser();
+        fileChooser.setAcceptAllFileFilterUsed(follow);
+        // FileNameExtensionFilter only compares the part after the last dot, so "gz" stands for ".vcd.gz".
+        fileChooser.addChoosableFileFilter(new FileNameExtensionFilter("VCD File (*.vcd, *.vcd.gz)", "vcd", "gz"));
+        if (!follow)
+            fileChooser.addChoosableFileFilter(new FileNameExtensionFilter("FST File", "fst"));
+        if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION)
+            return Optional.of(fileChooser.getSelectedFile());
+        return Optional.empty();
     }
 
     private void addMenuItem(String menuName, String text, String command) {
@@ -102,22 +185,15 @@ public class RootFrame extends JFrame implements ActionListener, WindowListener
     public void actionPerformed(ActionEvent e) {
         switch (e.getActionCommand()) {
             case "open":
-                var fileChooser = new JFileChooser();
-                fileChooser.setAcceptAllFileFilterUsed(false);
-                fileChooser.addChoosableFileFilter(new FileNameExtensionFilter("VCD File", "vcd"));
-                if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
-                    try (var bis = new PushbackReader(new FileReader(fileChooser.getSelectedFile()))) {
-                        parseResult = VCDParser.parse(bis, fileChooser.getSelectedFile().getName());
-                        paneManager.getSignalFinderPane().setHierarchyModel(parseResult.getHierarchy());
-                        waveViewModel.setTimescale(parseResult.getMetaData().getTimeScale());
-                    } catch (IOException ex) {
-                        JOptionPane.showMessageDialog(this,
-                                "Failed to read file:\n" + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-                    } catch (VCDParser.InvalidVCDFormatException ex) {
-                        JOptionPane.showMessageDialog(this,
-                                "Failed to parse VCD format: \n" + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-                    }
-                }
+                chooseFile(false).ifPresent(file -> openFile(file, false));
+                break;
+            case "follow":
+                // All files are accepted so that named pipes can be selected.
+                chooseFile(true).ifPresent(file -> openFile(file, true));
+                break;
+            case "cancel-loading":
+                if (loadWorker != null)
+                    loadWorker.cancel(false);
                 break;
             case "show-metadata":
                 if (parseResult == null) {
@@ -155,20 +231,20 @@ public class RootFrame extends JFrame implements ActionListener, WindowListener
             case "move-prev-edge":
                 if (waveViewModel.getSelectedIndex().isPresent()) {
                     Waveform selected = waveViewModel.getWaveform(waveViewModel.getSelectedIndex().get());
-                    int time = waveViewModel.getCursor().getTime();
-                    TimeSpan tr = selected.getTimeSeries().getValue(Math.max(0, time - 1));
-                    waveViewModel.getCursor().setTime(tr.getStartTime());
+                    var cursor = selected.getTimeSeries().newCursor();
+                    cursor.seek(Math.max(0, waveViewModel.getCursor().getTime() - 1));
+                    waveViewModel.getCursor().setTime(cursor.getStartTime());
                     paneManager.getWaveViewPane().scrollToCursor();
                 }
                 break;
             case "move-next-edge":
-                if (waveViewModel.getSelectedIndex().isPresent()) {
-                    Waveform selected = waveViewModel.getWaveform(waveViewModel.getSelectedIndex().get());
-                    int time = waveViewModel.getCursor().getTime();
-                    TimeSpan tr = selected.getTimeSeries().getValue(time);
-                    waveViewModel.getCursor().setTime(Math.min(tr.getEndTime() + 1, waveViewModel.getEndTime()));
-                    paneManager.getWaveViewPane().scrollToCursor();
-                }
+                moveToNextEdge(null);
+                break;
+            case "move-next-posedge":
+                moveToNextEdge("1");
+                break;
+            case "move-next-negedge":
+                moveToNextEdge("0");
                 break;
             default:
                 JOptionPane.showMessageDialog(this,
@@ -177,11 +253,59 @@ public class RootFrame extends JFrame implements ActionListener, WindowListener
         }
     }
 
+    // Moves the time cursor to the next change of the selected waveform, or to the next change to the
+    // given value if there is one.
+    private void moveToNextEdge(String value) {
+        if (waveViewModel.getSelectedIndex().isEmpty())
+            return;
+        Waveform selected = waveViewModel.getWaveform(waveViewModel.getSelectedIndex().get());
+        var cursor = selected.getTimeSeries().newCursor();
+        cursor.seek(waveViewModel.getCursor().getTime());
+        String prevValue = cursor.getValue();
+        while (cursor.next()) {
+            if (value == null || (value.equals(cursor.getValue()) && !value.equals(prevValue))) {
+                waveViewModel.getCursor().setTime(Math.min(cursor.getStartTime(), waveViewModel.getEndTime()));
+                paneManager.getWaveViewPane().scrollToCursor();
+                return;
+            }
+            prevValue = cursor.getValue();
+        }
+        if (value == null) {
+            waveViewModel.getCursor().setTime(waveViewModel.getEndTime());
+            paneManager.getWaveViewPane().scrollToCursor();
+        }
+    }
+
+    // Usage: [--follow] [--lazy] [--off-heap] [--memory-budget=MB] [--compress] [FILE], where FILE may be a named pipe
+    // or "-" for the standard input.
     public static void main(String[] args) {
         var frame = new RootFrame();
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
         frame.setVisible(true);
+
+        SwingUtilities.invokeLater(() -> {
+            // Options apply to every file, wherever they are given.
+            boolean follow = false;
+            for (var arg : args) {
+                if (arg.equals("--follow"))
+                    follow = true;
+                else if (arg.equals("--lazy"))
+                    frame.loadOnDemandMenuItem.setSelected(true);
+                else if (arg.equals("--off-heap"))
+                    frame.offHeapMenuItem.setSelected(true);
+                else if (arg.equals("--compress"))
+                    frame.compressMenuItem.setSelected(true);
+                else if (arg.startsWith("--memory-budget="))
+                    frame.memoryBudget = Long.parseLong(arg.substring("--memory-budget=".length())) << 20;
+            }
+            for (var arg : args) {
+                if (arg.equals("-"))
+                    frame.openStandardInput();
+                else if (!arg.startsWith("--"))
+                    frame.openFile(new File(arg), follow);
+            }
+        });
     }
 
     @Override
@@ -191,6 +315,8 @@ public class RootFrame extends JFrame implements ActionListener, WindowListener
 
     @Override
     public void windowClosing(WindowEvent e) {
+        if (parseResult != null)
+            parseResult.close();
         try {
             paneManager.getControl().write(new File(WavevizSettings.PANE_LAYOUT_FILE));
         } catch (IOException ioException) {
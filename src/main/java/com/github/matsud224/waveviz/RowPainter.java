@@ -0,0 +1,226 @@
+package com.github.matsud224.waveviz;
+
+import java.awt.*;
+
+// Paints waveform rows at one zoom level. Holds everything it needs from the panel, so that rows
+// can be painted off the event dispatch thread while the model changes.
+final class RowPainter {
+    private static final int MAX_LEAD_PIXELS = 1 << 20;
+    private final Waveviz wavevizObject;
+    private final long pixelsPerUnitTime; // reciprocal if negative
+    // x = 0 is originX pixels after originTime, so that coordinates stay small at any zoom level.
+    private final long originTime;
+    private final long originX;
+    private final long maxTime;
+    private final ValueFormatter formatter;
+    // Reused for every value change painted by this painter.
+    private final double[] range = new double[2];
+    private final ChangeSummary summary = new ChangeSummary();
+
+    RowPainter(Waveviz wavevizObject, long pixelsPerUnitTime, long originTime, long originX, long maxTime, ValueFormatter formatter) {
+        this.wavevizObject = wavevizObject;
+        this.pixelsPerUnitTime = pixelsPerUnitTime;
+        this.originTime = originTime;
+        this.originX = originX;
+        this.maxTime = maxTime;
+        this.formatter = formatter;
+    }
+
+    private long timeFromXCoordinate(int x) {
+        return WavevizUtilities.timeOfXCoordinate(x, originTime, originX, pixelsPerUnitTime);
+    }
+
+    private int xCoordinateFromTime(long t) {
+        return WavevizUtilities.xCoordinateOfTime(t, originTime, originX, pixelsPerUnitTime);
+    }
+
+    // Paints the row of the signal whose top is at y, within the clip.
+    void paint(Graphics2D g2, TimeSeries signal, int y) {
+        var clipBounds = g2.getClipBounds();
+        int upperY = y + wavevizObject.getWaveYPadding();
+        int lowerY = y + wavevizObject.getWaveRowHeight() - wavevizObject.getWaveYPadding();
+
+        if (WavevizUtilities.isRealType(signal.getType())) {
+            paintAnalogWave(g2, signal, upperY, lowerY);
+            return;
+        }
+
+        long startTime = timeFromXCoordinate(clipBounds.x);
+        String prevValue = null;
+
+        var cursor = signal.newCursor();
+        cursor.seek(startTime);
+        // Painting starts from where the value before the one held at the left end starts, so that
+        // labels and edges come out the same whichever part of the row is painted.
+        // A value that starts further left than any label reaches is painted from there instead,
+        // which keeps x within range when zoomed in far.
+        long leftmostTime = timeFromXCoordinate(clipBounds.x - MAX_LEAD_PIXELS);
+        cursor.prev();
+        if (cursor.getStartTime() >= leftmostTime) {
+            startTime = Math.min(startTime, cursor.getStartTime());
+        } else {
+            startTime = leftmostTime;
+            cursor.seek(startTime);
+        }
+        int x = xCoordinateFromTime(startTime);
+        for (long t = startTime; x < clipBounds.x + clipBounds.width && t <= maxTime; ) {
+            var tr = cursor.getSpan();
+            int rightX = WavevizUtilities.clampToInt(x + WavevizUtilities.pixelsOfTimeSpan(tr.getEndTime() - t + 1, pixelsPerUnitTime));
+            if (pixelsPerUnitTime < 0 && rightX == x) {
+                // The value lasts less than a pixel, so this column may hold more changes than can be drawn.
+                int busyEndX = paintBusyColumns(g2, signal, x, clipBounds.x + clipBounds.width, upperY, lowerY);
+                if (busyEndX > x) {
+                    x = busyEndX;
+                    t = timeFromXCoordinate(x);
+                    cursor.seek(t);
+                    prevValue = null;
+                    continue;
+                }
+            }
+            if (!tr.hasValue()) {
+                // Nothing has been dumped for this signal yet.
+            } else if (signal.getWidth() == 1) {
+                if (tr.getValue().equals("0")) {
+                    g2.setColor(wavevizObject.getWaveLineColor());
+                    g2.drawLine(x, lowerY, rightX, lowerY);
+                    if (prevValue != null && prevValue.equals("1")) {
+                        g2.drawLine(x, upperY, x, lowerY);
+                    }
+                } else if (tr.getValue().equals("1")) {
+                    g2.setColor(wavevizObject.getWaveHighValueFillColor());
+                    g2.fillRect(x, upperY, rightX - x, lowerY - upperY);
+                    g2.setColor(wavevizObject.getWaveLineColor());
+                    g2.drawLine(x, upperY, rightX, upperY);
+                    if (prevValue != null && prevValue.equals("0")) {
+                        g2.drawLine(x, upperY, x, lowerY);
+                    }
+                } else {
+                    if (tr.getValue().equals("x"))
+                        g2.setColor(Color.red);
+                    else
+                        g2.setColor(Color.yellow);
+                    g2.drawLine(x, y + wavevizObject.getWaveRowHeight() / 2, rightX, y + wavevizObject.getWaveRowHeight() / 2);
+                }
+            } else {
+                g2.setColor(wavevizObject.getWaveLineColor());
+                g2.drawLine(x, upperY, rightX, upperY);
+                g2.drawLine(rightX, upperY, rightX, lowerY);
+                g2.drawLine(x, lowerY, rightX, lowerY);
+
+                if (rightX - x > 10 /* FIXME: calc threshold */ && rightX > clipBounds.x) { // skip drawing text if width is too small
+                    g2.setColor(wavevizObject.getWaveTextColor());
+                    var metrics = g2.getFontMetrics();
+                    if (tr.hasValue()) {
+                        // Formatted from the span, so that packed vectors need not become strings.
+                        var formattedStr = formatter.format(tr);
+
+                        var trimmedStr = WavevizUtilities.getTextWithinWidth(metrics, formattedStr, "..", rightX - x - wavevizObject.getWaveLabelRightPadding() * 2);
+                        if (!trimmedStr.isEmpty())
+                            g2.drawString(trimmedStr, x + wavevizObject.getWaveLabelRightPadding(), y + wavevizObject.getWaveYPadding() + wavevizObject.getWaveFontHeight());
+                    }
+                }
+            }
+
+            // Only single-bit waves look at the previous value, and vectors are not turned into strings.
+            prevValue = signal.getWidth() == 1 ? tr.getValue() : null;
+            if (pixelsPerUnitTime > 0) {
+                x = rightX;
+                t = tr.getEndTime() + 1;
+            } else {
+                if (x == rightX)
+                    x += 1;
+                else
+                    x = rightX;
+                t = timeFromXCoordinate(x);
+            }
+            advanceCursor(cursor, t);
+        }
+    }
+
+    // Moves the cursor on to the change held at time t, stepping rather than searching when t
+    // directly follows the current span.
+    private static void advanceCursor(ChangeCursor cursor, long t) {
+        long endTime = cursor.getEndTime();
+        if (t <= endTime || (t == endTime + 1 && cursor.next()))
+            return;
+        cursor.seek(t);
+    }
+
+    // Draws the columns from x on that hold more than one change as a filled block, red if an x or z
+    // value is held within them. Returns where the block ends, which is x if that column is not busy.
+    private int paintBusyColumns(Graphics2D g2, TimeSeries signal, int x, int clipEndX, int upperY, int lowerY) {
+        boolean unknown = false;
+        int endX = x;
+        while (endX < clipEndX) {
+            long start = timeFromXCoordinate(endX);
+            if (start > maxTime || !signal.summarize(start, Math.min(timeFromXCoordinate(endX + 1) - 1, maxTime), summary)
+                    || summary.getTransitionCount() < 2)
+                break;
+            unknown |= summary.hasUnknown();
+            endX++;
+        }
+        if (endX > x) {
+            g2.setColor(unknown ? Color.red : wavevizObject.getWaveHighValueFillColor());
+            g2.fillRect(x, upperY, endX - x, lowerY - upperY);
+            g2.setColor(unknown ? Color.red : wavevizObject.getWaveLineColor());
+            g2.drawLine(x, upperY, endX, upperY);
+            g2.drawLine(x, lowerY, endX, lowerY);
+        }
+        return endX;
+    }
+
+    // Real variables are drawn as a trace scaled to their whole range. When zoomed out, each pixel
+    // column shows the min/max envelope of its time range, so the cost depends on the width only.
+    private void paintAnalogWave(Graphics2D g2, TimeSeries signal, int upperY, int lowerY) {
+        var clipBounds = g2.getClipBounds();
+        if (!signal.getRealRange(signal.getStartTime(), signal.getEndTime(), range))
+            return;
+        double min = range[0];
+        double scale = range[1] > min ? (lowerY - upperY) / (range[1] - min) : 0;
+        int middleY = (upperY + lowerY) / 2;
+        g2.setColor(wavevizObject.getWaveLineColor());
+
+        if (pixelsPerUnitTime < 0) {
+            for (int x = clipBounds.x; x < clipBounds.x + clipBounds.width; x++) {
+                long t = timeFromXCoordinate(x);
+                if (t > maxTime)
+                    break;
+                if (!signal.getRealRange(t, Math.min(timeFromXCoordinate(x + 1) - 1, maxTime), range))
+                    continue;
+                int topY = scale == 0 ? middleY : lowerY - (int) Math.round((range[1] - min) * scale);
+                int bottomY = scale == 0 ? middleY : lowerY - (int) Math.round((range[0] - min) * scale);
+                g2.drawLine(x, topY, x, bottomY);
+            }
+            return;
+        }
+
+        long startTime = timeFromXCoordinate(clipBounds.x);
+        int x = xCoordinateFromTime(startTime);
+        int prevY = -1;
+        var cursor = signal.newCursor();
+        cursor.seek(startTime);
+        if (cursor.getStartTime() == startTime && cursor.prev()) {
+            double value = cursor.hasValue() ? cursor.getSpan().getRealValue() : Double.NaN;
+            if (!Double.isNaN(value))
+                prevY = scale == 0 ? middleY : lowerY - (int) Math.round((value - min) * scale);
+            cursor.next();
+        }
+        for (long t = startTime; x < clipBounds.x + clipBounds.width && t <= maxTime; ) {
+            var tr = cursor.getSpan();
+            int rightX = WavevizUtilities.clampToInt(x + WavevizUtilities.pixelsOfTimeSpan(tr.getEndTime() - t + 1, pixelsPerUnitTime));
+            double value = tr.hasValue() ? tr.getRealValue() : Double.NaN;
+            if (Double.isNaN(value)) {
+                prevY = -1;
+            } else {
+                int y = scale == 0 ? middleY : lowerY - (int) Math.round((value - min) * scale);
+                if (prevY >= 0)
+                    g2.drawLine(x, prevY, x, y);
+                g2.drawLine(x, y, rightX, y);
+                prevY = y;
+            }
+            x = rightX;
+            t = tr.getEndTime() + 1;
+            advanceCursor(cursor, t);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.github.matsud224.waveviz;
+
+import org.jruby.Ruby;
+import org.jruby.RubyProc;
+import org.jruby.RubyString;
+import org.jruby.runtime.builtin.IRubyObject;
+
+// Formatter defined by a Ruby block, called with the binary string of the value. Blocks are not
+// written to be run by several threads at once, so calls by tile painters take turns on the runtime.
+final class RubyFormatter implements ValueFormatter {
+    private final RubyProc proc;
+
+    RubyFormatter(RubyProc proc) {
+        this.proc = proc;
+    }
+
+    @Override
+    public String format(String value) {
+        Ruby runtime = proc.getRuntime();
+        synchronized (runtime) {
+            IRubyObject[] args = new IRubyObject[]{RubyString.newString(runtime, value)};
+            return proc.call(runtime.getCurrentContext(), args).asJavaString();
+        }
+    }
+}
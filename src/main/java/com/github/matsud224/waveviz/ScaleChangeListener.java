@@ -1,5 +0,0 @@
-package com.github.matsud224.waveviz;
-
-public interface ScaleChangeListener {
-    void scaleChanged(int pixelsPerUnitTime, int width);
-}
@@ -0,0 +1,428 @@
+package com.github.matsud224.waveviz;
+
+import com.github.matsud224.waveviz.VCDParser.MetaData;
+import com.github.matsud224.waveviz.VCDParser.ParseResult;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Optional;
+
+// Binary copy of a parsed dump kept next to it as "<file>.wvc", so that reopening it only maps
+// the change columns instead of parsing the text again. The cache is tied to the size and
+// modification time of the dump, and is rebuilt when either changes.
+//
+// Layout (big-endian):
+//   header     magic, version, dump size, dump mtime, end time, store count, section offsets
+//   columns    per store: times[count] of 4 or 8 bytes each, the values it is first to use,
+//              valueIds[count] of 1, 2, 4 or 8 bytes each
+//   pool index long offset of each pooled value
+//   stores     per store: long timesOffset, long valueIdsOffset, int count, int valueIdWidth, int timeWidth
+//   hierarchy  metadata followed by the scope tree, signals refer to stores by index
+//
+// A value is stored as an int length followed by its UTF-8 bytes. Up to MAX_POOLED_VALUES distinct
+// values are pooled and referred to by id. A store that uses values beyond those has a column of
+// 8-byte references instead: a pool id if not negative, else the complement of the offset of a
+// value written inline for that change.
+public class SidecarCache {
+    private static final long MAGIC = 0x5756495a43414348L; // "WVIZCACH"
+    private static final int VERSION = 6;
+    private static final int MAX_POOLED_VALUES = 1 << 16;
+    private static final int HEADER_SIZE = 8 + 4 + 8 + 8 + 8 + 4 + 8 * 4;
+    private static final String SUFFIX = ".wvc";
+
+    public static Path getCachePath(Path dumpPath) {
+        return dumpPath.resolveSibling(dumpPath.getFileName() + SUFFIX);
+    }
+
+    // Returns empty if there is no usable cache for the dump in its current state.
+    public static Optional<ParseResult> read(Path dumpPath, String name) {
+        var cachePath = getCachePath(dumpPath);
+        if (!Files.isRegularFile(cachePath))
+            return Optional.empty();
+        try {
+            var file = new MappedFile(cachePath);
+            if (file.getLong(0) != MAGIC || file.getInt(8) != VERSION)
+                return Optional.empty();
+            if (file.getLong(12) != Files.size(dumpPath) || file.getLong(20) != Files.getLastModifiedTime(dumpPath).toMillis())
+                return Optional.empty();
+            long endTime = file.getLong(28);
+            int storeCount = file.getInt(36);
+            long poolIndexOffset = file.getLong(40);
+            long storeTableOffset = file.getLong(48);
+            long hierarchyOffset = file.getLong(56);
+            int poolSize = (int) file.getLong(64);
+            file.setPool(poolIndexOffset, poolSize);
+
+            var timeline = new Timeline();
+            timeline.setEndTime(endTime);
+            var stores = new ValueChangeStore[storeCount];
+            for (int i = 0; i < storeCount; i++) {
+                long entry = storeTableOffset + 28L * i;
+                stores[i] = new MappedValueChangeStore(timeline, file, file.getLong(entry), file.getLong(entry + 8),
+                        file.getInt(entry + 16), file.getInt(entry + 20), file.getInt(entry + 24));
+            }
+
+            var reader = new Reader(file, hierarchyOffset);
+            var metaData = new MetaData();
+            metaData.setComment(reader.readString());
+            metaData.setDate(reader.readString());
+            metaData.setVersion(reader.readString());
+            int multiplier = reader.readInt();
+            var timeUnit = reader.readString();
+            if (timeUnit != null)
+                metaData.setTimeScale(new Timescale(multiplier, Timescale.TimeUnit.valueOf(timeUnit)));
+            var root = readScope(reader, name, null, stores);
+            return Optional.of(new ParseResult(root, metaData, timeline, stores));
+        } catch (IOException | RuntimeException e) {
+            System.out.printf("Ignoring unreadable cache %s: %s\n", cachePath, e);
+            return Optional.empty();
+        }
+    }
+
+    private static HierarchyTree readScope(Reader reader, String rootName, HierarchyTree parent, ValueChangeStore[] stores) {
+        var scopeName = reader.readString();
+        var scopeType = reader.readString();
+        var scope = new HierarchyTree(parent == null ? rootName : scopeName, scopeType, parent);
+        int signalCount = reader.readInt();
+        for (int i = 0; i < signalCount; i++) {
+            var reference = reader.readString();
+            var type = reader.readString();
+            int width = reader.readInt();
+            int storeIndex = reader.readInt();
+            var path = scope.getPath();
+            path.add(reference);
+            scope.signals.add(new Signal(path, type, width, stores[storeIndex]));
+        }
+        int childCount = reader.readInt();
+        for (int i = 0; i < childCount; i++)
+            scope.children.add(readScope(reader, rootName, scope, stores));
+        return scope;
+    }
+
+    // The stores must be complete, i.e. the whole dump has been parsed.
+    public static void write(Path dumpPath, long dumpSize, long dumpModifiedTime, ParseResult result) throws IOException {
+        var cachePath = getCachePath(dumpPath);
+        var tempPath = cachePath.resolveSibling(cachePath.getFileName() + ".tmp");
+        var stores = result.getStores();
+        try (var writer = new Writer(tempPath)) {
+            writer.position(HEADER_SIZE);
+
+            var pool = new HashMap<String, Integer>();
+            var poolOffsets = new long[16];
+            var timesOffsets = new long[stores.length];
+            var valueIdsOffsets = new long[stores.length];
+            var valueIdWidths = new int[stores.length];
+            var timeWidths = new int[stores.length];
+            var ids = new long[0];
+            for (int i = 0; i < stores.length; i++) {
+                var store = stores[i];
+                int size = store.size();
+                // Times are ascending, so the last one decides whether the column fits in ints.
+                timeWidths[i] = size == 0 || store.timeAt(size - 1) <= Integer.MAX_VALUE ? 4 : 8;
+                timesOffsets[i] = writer.position();
+                for (int j = 0; j < size; j++) {
+                    if (timeWidths[i] == 4)
+                        writer.putInt((int) store.timeAt(j));
+                    else
+                        writer.putLong(store.timeAt(j));
+                }
+
+                // Values are written where they are first used, so that none has to be held until the end.
+                if (ids.length < size)
+                    ids = new long[size];
+                long maxId = 0;
+                boolean inline = false;
+                for (int j = 0; j < size; j++) {
+                    var value = store.valueAt(j);
+                    var id = pool.get(value);
+                    if (id == null && pool.size() == MAX_POOLED_VALUES) {
+                        ids[j] = ~writer.position();
+                        writer.putString(value);
+                        inline = true;
+                        continue;
+                    }
+                    if (id == null) {
+                        id = pool.size();
+                        if (id == poolOffsets.length)
+                            poolOffsets = Arrays.copyOf(poolOffsets, id * 2);
+                        poolOffsets[id] = writer.position();
+                        writer.putString(value);
+                        pool.put(value, id);
+                    }
+                    ids[j] = id;
+                    maxId = Math.max(maxId, id);
+                }
+                valueIdWidths[i] = inline ? 8 : maxId < 0x100 ? 1 : maxId < 0x10000 ? 2 : 4;
+                valueIdsOffsets[i] = writer.position();
+                for (int j = 0; j < size; j++) {
+                    if (inline)
+                        writer.putLong(ids[j]);
+                    else
+                        writer.putUnsigned((int) ids[j], valueIdWidths[i]);
+                }
+            }
+
+            long poolIndexOffset = writer.position();
+            for (int i = 0; i < pool.size(); i++)
+                writer.putLong(poolOffsets[i]);
+
+            long storeTableOffset = writer.position();
+            for (int i = 0; i < stores.length; i++) {
+                writer.putLong(timesOffsets[i]);
+                writer.putLong(valueIdsOffsets[i]);
+                writer.putInt(stores[i].size());
+                writer.putInt(valueIdWidths[i]);
+                writer.putInt(timeWidths[i]);
+            }
+
+            long hierarchyOffset = writer.position();
+            var metaData = result.getMetaData();
+            writer.putString(metaData.getComment());
+            writer.putString(metaData.getDate());
+            writer.putString(metaData.getVersion());
+            var timescale = metaData.getTimeScale();
+            writer.putInt(timescale == null ? 0 : timescale.getMultiplier());
+            writer.putString(timescale == null ? null : timescale.getTimeUnit().name());
+            var storeIndices = new IdentityHashMap<ValueChangeStore, Integer>();
+            for (int i = 0; i < stores.length; i++)
+                storeIndices.put(stores[i], i);
+            writeScope(writer, result.getHierarchy(), storeIndices);
+
+            writer.position(0);
+            writer.putLong(MAGIC);
+            writer.putInt(VERSION);
+            writer.putLong(dumpSize);
+            writer.putLong(dumpModifiedTime);
+            writer.putLong(result.getTimeline().getEndTime());
+            writer.putInt(stores.length);
+            writer.putLong(poolIndexOffset);
+            writer.putLong(storeTableOffset);
+            writer.putLong(hierarchyOffset);
+            writer.putLong(pool.size());
+        }
+        Files.move(tempPath, cachePath, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void writeScope(Writer writer, HierarchyTree scope, IdentityHashMap<ValueChangeStore, Integer> storeIndices) throws IOException {
+        writer.putString(scope.getScopeName());
+        writer.putString(scope.getScopeType());
+        writer.putInt(scope.signals.size());
+        for (var signal : scope.signals) {
+            var path = signal.getPath();
+            writer.putString(path.get(path.size() - 1));
+            writer.putString(signal.getType());
+            writer.putInt(signal.getWidth());
+            writer.putInt(storeIndices.get(signal.getValueChangeStore()));
+        }
+        writer.putInt(scope.children.size());
+        for (var child : scope.children)
+            writeScope(writer, child, storeIndices);
+    }
+
+    // Read-only mapping of a whole file in overlapping segments, so that no primitive value
+    // straddles two mappings.
+    static class MappedFile {
+        private static final int SEGMENT_BITS = 30;
+        private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+        private static final long OVERLAP = 8;
+
+        // Values of one ASCII character, such as scalar 0/1/x/z, are shared instead of decoded.
+        private static final String[] ASCII_STRINGS = new String[0x80];
+
+        static {
+            for (int i = 0; i < ASCII_STRINGS.length; i++)
+                ASCII_STRINGS[i] = String.valueOf((char) i).intern();
+        }
+
+        private final MappedByteBuffer[] segments;
+        private long poolIndexOffset;
+        private int poolSize;
+        // Pooled values decoded so far, by id. Racing readers at worst decode a value twice.
+        private String[] pooledStrings;
+
+        private MappedFile(Path path) throws IOException {
+            try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long size = channel.size();
+                int count = (int) Math.max(1, (size + SEGMENT_SIZE - 1) >>> SEGMENT_BITS);
+                segments = new MappedByteBuffer[count];
+                for (int i = 0; i < count; i++) {
+                    long start = (long) i << SEGMENT_BITS;
+                    segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE + OVERLAP, size - start));
+                }
+            }
+        }
+
+        private void setPool(long poolIndexOffset, int poolSize) {
+            this.poolIndexOffset = poolIndexOffset;
+            this.poolSize = poolSize;
+            this.pooledStrings = new String[poolSize];
+        }
+
+        byte getByte(long position) {
+            return segments[(int) (position >>> SEGMENT_BITS)].get((int) (position & (SEGMENT_SIZE - 1)));
+        }
+
+        int getUnsignedByte(long position) {
+            return getByte(position) & 0xff;
+        }
+
+        int getUnsignedShort(long position) {
+            return segments[(int) (position >>> SEGMENT_BITS)].getShort((int) (position & (SEGMENT_SIZE - 1))) & 0xffff;
+        }
+
+        int getInt(long position) {
+            return segments[(int) (position >>> SEGMENT_BITS)].getInt((int) (position & (SEGMENT_SIZE - 1)));
+        }
+
+        long getLong(long position) {
+            return segments[(int) (position >>> SEGMENT_BITS)].getLong((int) (position & (SEGMENT_SIZE - 1)));
+        }
+
+        // Returns null for a null string, which is stored with a length of -1.
+        String getString(long position) {
+            int length = getInt(position);
+            if (length < 0)
+                return null;
+            long start = position + 4;
+            if (length == 1) {
+                byte b = getByte(start);
+                if (b >= 0)
+                    return ASCII_STRINGS[b];
+            }
+            var bytes = new byte[length];
+            var segment = segments[(int) (start >>> SEGMENT_BITS)];
+            int offset = (int) (start & (SEGMENT_SIZE - 1));
+            if (offset + length <= segment.limit()) {
+                segment.duplicate().position(offset).get(bytes);
+            } else {
+                for (int i = 0; i < length; i++)
+                    bytes[i] = getByte(start + i);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        String getPooledString(int id) {
+            if (id < 0 || id >= poolSize)
+                throw new IllegalStateException("broken value pool in cache");
+            var value = pooledStrings[id];
+            if (value == null) {
+                value = getString(getLong(poolIndexOffset + 8L * id));
+                pooledStrings[id] = value;
+            }
+            return value;
+        }
+    }
+
+    private static class Reader {
+        private final MappedFile file;
+        private long position;
+
+        private Reader(MappedFile file, long position) {
+            this.file = file;
+            this.position = position;
+        }
+
+        private int readInt() {
+            int value = file.getInt(position);
+            position += 4;
+            return value;
+        }
+
+        private String readString() {
+            int length = file.getInt(position);
+            var value = file.getString(position);
+            position += 4 + Math.max(0, length);
+            return value;
+        }
+    }
+
+    private static class Writer implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+        private long position = 0;
+
+        private Writer(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        private long position() {
+            return position;
+        }
+
+        private void position(long newPosition) throws IOException {
+            flush();
+            position = newPosition;
+        }
+
+        private void ensureRemaining(int n) throws IOException {
+            if (buffer.remaining() < n)
+                flush();
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            long at = position - buffer.remaining();
+            while (buffer.hasRemaining())
+                at += channel.write(buffer, at);
+            buffer.clear();
+        }
+
+        private void putInt(int value) throws IOException {
+            ensureRemaining(4);
+            buffer.putInt(value);
+            position += 4;
+        }
+
+        private void putUnsigned(int value, int width) throws IOException {
+            ensureRemaining(width);
+            if (width == 1)
+                buffer.put((byte) value);
+            else if (width == 2)
+                buffer.putShort((short) value);
+            else
+                buffer.putInt(value);
+            position += width;
+        }
+
+        private void putLong(long value) throws IOException {
+            ensureRemaining(8);
+            buffer.putLong(value);
+            position += 8;
+        }
+
+        private void putString(String value) throws IOException {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+            var bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            for (int offset = 0; offset < bytes.length; ) {
+                ensureRemaining(1);
+                int n = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, n);
+                offset += n;
+                position += n;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -30,22 +30,59 @@ public class Signal implements TimeSeries {
         return width;
     }
 
-    public void addChange(int time, String numStr) {
+    // For dumps loaded on demand: waits until the value changes of this signal have been read.
+    public void materialize() throws InterruptedException {
+        valueChangeStore.awaitLoaded();
+    }
+
+    @Override
+    public boolean isLoaded() {
+        return valueChangeStore.isLoaded();
+    }
+
+    public ValueChangeStore getValueChangeStore() {
+        return valueChangeStore;
+    }
+
+    // Signals of a dump opened from its sidecar cache are read-only, and throw IllegalStateException.
+    public void addChange(long time, String numStr) {
+        if (valueChangeStore.isReadOnly())
+            throw new IllegalStateException(String.join(".", path) + " is read-only, since its dump was opened from its cache");
         valueChangeStore.addChange(time, numStr);
     }
 
     @Override
-    public TimeSpan getValue(int time) {
+    public ValueWithSpan<String> getValue(long time) {
         return valueChangeStore.getValue(time);
     }
 
     @Override
-    public int getStartTime() {
+    public void getValue(long time, ValueSpan span) {
+        valueChangeStore.getValue(time, span);
+    }
+
+    @Override
+    public ChangeCursor newCursor() {
+        return valueChangeStore.newCursor();
+    }
+
+    @Override
+    public boolean getRealRange(long startTime, long endTime, double[] range) {
+        return valueChangeStore.getRealRange(startTime, endTime, range);
+    }
+
+    @Override
+    public boolean summarize(long startTime, long endTime, ChangeSummary summary) {
+        return valueChangeStore.summarize(startTime, endTime, summary);
+    }
+
+    @Override
+    public long getStartTime() {
         return valueChangeStore.getStartTime();
     }
 
     @Override
-    public int getEndTime() {
+    public long getEndTime() {
         return valueChangeStore.getEndTime();
     }
 
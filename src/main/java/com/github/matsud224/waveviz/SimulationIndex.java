@@ -0,0 +1,92 @@
+package com.github.matsud224.waveviz;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// Byte offsets of "#time" lines spread over the simulation section, found without parsing any
+// value change. Lets signals be materialized later by scanning the section in independent chunks.
+final class SimulationIndex {
+    private final long[] offsets;
+    private final long endTime;
+
+    private SimulationIndex(long[] offsets, long endTime) {
+        this.offsets = offsets;
+        this.endTime = endTime;
+    }
+
+    // The first offset is the start of the simulation section and the last one is the end of the file.
+    long[] getOffsets() {
+        return offsets;
+    }
+
+    long getEndTime() {
+        return endTime;
+    }
+
+    // Picks at most count + 1 offsets so that the ranges between them are about the same size.
+    long[] getBoundaries(int count) {
+        int ranges = offsets.length - 1;
+        if (ranges <= count)
+            return offsets;
+        var boundaries = new long[count + 1];
+        for (int i = 0; i <= count; i++)
+            boundaries[i] = offsets[(int) ((long) ranges * i / count)];
+        return boundaries;
+    }
+
+    // Also adds every time to the time table, so that stores loaded later can refer to them.
+    static SimulationIndex build(Path path, long simulationStart, long interval, TimeTable timeTable) throws IOException, VCDParser.InvalidVCDFormatException {
+        var offsets = new long[64];
+        int offsetCount = 0;
+        offsets[offsetCount++] = simulationStart;
+        long nextCheckpoint = simulationStart + interval;
+        long maxTime = 0;
+        long time = -1;
+        int prev = '\n';
+
+        try (var source = new MappedFileByteSource(path, simulationStart, Long.MAX_VALUE)) {
+            long position = simulationStart;
+            for (var buffer = source.next(); buffer != null; buffer = source.next()) {
+                int limit = buffer.limit();
+                for (int i = buffer.position(); i < limit; i++, position++) {
+                    int c = buffer.get(i);
+                    if (time >= 0) {
+                        int d = c - '0';
+                        if (d >= 0 && d <= 9) {
+                            if (time > (Long.MAX_VALUE - d) / 10)
+                                throw new VCDParser.InvalidVCDFormatException("number is too large");
+                            time = time * 10 + d;
+                        } else {
+                            if (time < maxTime)
+                                throw new VCDParser.InvalidVCDFormatException("time goes backwards at #" + time);
+                            maxTime = time;
+                            timeTable.add(time);
+                            time = -1;
+                        }
+                    } else if (c == '#' && (prev == '\n' || prev == '\r')) {
+                        time = 0;
+                        if (position >= nextCheckpoint && position > offsets[offsetCount - 1]) {
+                            if (offsetCount == offsets.length)
+                                offsets = Arrays.copyOf(offsets, offsetCount * 2);
+                            offsets[offsetCount++] = position;
+                            nextCheckpoint = position + interval;
+                        }
+                    }
+                    prev = c;
+                }
+            }
+            if (time >= 0) {
+                if (time < maxTime)
+                    throw new VCDParser.InvalidVCDFormatException("time goes backwards at #" + time);
+                maxTime = time;
+                timeTable.add(time);
+            }
+
+            if (offsetCount == offsets.length)
+                offsets = Arrays.copyOf(offsets, offsetCount + 1);
+            offsets[offsetCount++] = position;
+        }
+        return new SimulationIndex(Arrays.copyOf(offsets, offsetCount), maxTime);
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.matsud224.waveviz;
+
+// Cursor over a time series that can only look up values by time. Each step is a lookup of the
+// time just past the current span.
+final class SpanCursor implements ChangeCursor {
+    private final TimeSeries series;
+    private final ValueSpan span = new ValueSpan();
+    private final ValueSpan probe = new ValueSpan();
+
+    SpanCursor(TimeSeries series) {
+        this.series = series;
+    }
+
+    @Override
+    public void seek(long time) {
+        series.getValue(time, span);
+    }
+
+    @Override
+    public boolean next() {
+        long endTime = span.getEndTime();
+        if (endTime == Long.MAX_VALUE || endTime >= series.getEndTime())
+            return false;
+        return moveTo(endTime + 1);
+    }
+
+    @Override
+    public boolean prev() {
+        long startTime = span.getStartTime();
+        if (startTime <= 0)
+            return false;
+        return moveTo(startTime - 1);
+    }
+
+    private boolean moveTo(long time) {
+        series.getValue(time, probe);
+        // The series does not hold anything before its first change.
+        if (probe.getStartTime() == span.getStartTime())
+            return false;
+        span.set(probe.getValue(), probe.getStartTime(), probe.getEndTime());
+        return true;
+    }
+
+    @Override
+    public ValueSpan getSpan() {
+        return span;
+    }
+}
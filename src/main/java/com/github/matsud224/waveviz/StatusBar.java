@@ -0,0 +1,52 @@
+package com.github.matsud224.waveviz;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionListener;
+
+public class StatusBar extends JPanel {
+    private static final int PROGRESS_MAX = 1000;
+
+    private final JLabel messageLabel;
+    private final JProgressBar progressBar;
+    private final JButton cancelButton;
+
+    public StatusBar(ActionListener listener) {
+        super(new BorderLayout(8, 0));
+        setBorder(BorderFactory.createEmptyBorder(2, 6, 2, 6));
+
+        messageLabel = new JLabel(" ");
+        add(messageLabel, BorderLayout.CENTER);
+
+        var rightPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 4, 0));
+        progressBar = new JProgressBar(0, PROGRESS_MAX);
+        progressBar.setPreferredSize(new Dimension(160, progressBar.getPreferredSize().height));
+        rightPanel.add(progressBar);
+        cancelButton = new JButton("Cancel");
+        cancelButton.setActionCommand("cancel-loading");
+        cancelButton.addActionListener(listener);
+        rightPanel.add(cancelButton);
+        add(rightPanel, BorderLayout.LINE_END);
+
+        showMessage(" ");
+    }
+
+    public void showMessage(String message) {
+        messageLabel.setText(message);
+        progressBar.setVisible(false);
+        cancelButton.setVisible(false);
+    }
+
+    // totalBytes is -1 when the size of the input is unknown.
+    public void showProgress(String message, long consumedBytes, long totalBytes) {
+        messageLabel.setText(message);
+        if (totalBytes > 0) {
+            progressBar.setIndeterminate(false);
+            progressBar.setValue((int) (PROGRESS_MAX * Math.min(consumedBytes, totalBytes) / totalBytes));
+        } else {
+            progressBar.setIndeterminate(true);
+        }
+        progressBar.setVisible(true);
+        cancelButton.setVisible(true);
+    }
+}
@@ -0,0 +1,40 @@
+package com.github.matsud224.waveviz;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+public class StreamByteSource implements VCDByteSource {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final InputStream stream;
+    private final long length;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    public StreamByteSource(InputStream stream) {
+        this(stream, -1);
+    }
+
+    public StreamByteSource(InputStream stream, long length) {
+        this.stream = stream;
+        this.length = length;
+    }
+
+    @Override
+    public ByteBuffer next() throws IOException {
+        int n = stream.read(buffer);
+        if (n < 0)
+            return null;
+        return ByteBuffer.wrap(buffer, 0, n);
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        stream.close();
+    }
+}
@@ -0,0 +1,93 @@
+package com.github.matsud224.waveviz;
+
+import java.util.Arrays;
+
+// Level-of-detail summary of a store for drawing time ranges narrower than a pixel. The number of
+// changes within a range is a difference of indices, so only whether an x or z value appears needs
+// a pyramid: level k has a bit per aligned group of 2^(k + GROUP_BITS) changes. Built on first use
+// and extended as the store grows.
+final class SummaryPyramid {
+    private static final int GROUP_BITS = 4;
+    private static final int GROUP_SIZE = 1 << GROUP_BITS;
+
+    private long[][] levels = new long[0][];
+    private int size = 0;
+
+    void extend(ValueChangeStore store, int newSize) {
+        if (newSize <= size)
+            return;
+        // The top level has a single group covering every change.
+        while (levels.length == 0 || (long) GROUP_SIZE << (levels.length - 1) < newSize) {
+            int top = levels.length;
+            levels = Arrays.copyOf(levels, top + 1);
+            levels[top] = new long[1];
+            if (top > 0 && isSet(top - 1, 0))
+                levels[top][0] = 1;
+        }
+        for (int index = size; index < newSize; index++) {
+            if (!store.isUnknownAt(index))
+                continue;
+            for (int level = 0, group = index >>> GROUP_BITS; level < levels.length; level++, group >>>= 1) {
+                int word = group >>> 6;
+                if (word >= levels[level].length)
+                    levels[level] = Arrays.copyOf(levels[level], Math.max(word + 1, levels[level].length * 2));
+                levels[level][word] |= 1L << group;
+            }
+        }
+        size = newSize;
+    }
+
+    // Forgets the changes from newSize on, so that extend covers whatever is appended in their place.
+    void truncate(ValueChangeStore store, int newSize) {
+        if (newSize >= size)
+            return;
+        for (int level = 0, group = newSize >>> GROUP_BITS; level < levels.length; level++, group >>>= 1) {
+            var bits = levels[level];
+            int word = group >>> 6;
+            if (word >= bits.length)
+                continue;
+            bits[word] &= ~(-1L << group);
+            Arrays.fill(bits, word + 1, bits.length, 0);
+            // The group holding newSize keeps the changes before it.
+            boolean unknown = false;
+            if (level == 0) {
+                for (int index = group << GROUP_BITS; index < newSize && !unknown; index++)
+                    unknown = store.isUnknownAt(index);
+            } else {
+                unknown = isSet(level - 1, group * 2) || isSet(level - 1, group * 2 + 1);
+            }
+            if (unknown)
+                bits[word] |= 1L << group;
+        }
+        size = newSize;
+    }
+
+    private boolean isSet(int level, int group) {
+        var bits = levels[level];
+        int word = group >>> 6;
+        return word < bits.length && (bits[word] & 1L << group) != 0;
+    }
+
+    // Whether any change at indices from..to, which must have been covered by extend, has an x or z bit.
+    boolean anyUnknown(ValueChangeStore store, int from, int to) {
+        int low = from;
+        int high = to + 1;
+        for (; low < high && (low & (GROUP_SIZE - 1)) != 0; low++) {
+            if (store.isUnknownAt(low))
+                return true;
+        }
+        while (low < high && (high & (GROUP_SIZE - 1)) != 0) {
+            if (store.isUnknownAt(--high))
+                return true;
+        }
+        int lowGroup = low >>> GROUP_BITS;
+        int highGroup = high >>> GROUP_BITS;
+        for (int level = 0; lowGroup < highGroup; level++, lowGroup >>>= 1, highGroup >>>= 1) {
+            if ((lowGroup & 1) != 0 && isSet(level, lowGroup++))
+                return true;
+            if ((highGroup & 1) != 0 && isSet(level, --highGroup))
+                return true;
+        }
+        return false;
+    }
+}
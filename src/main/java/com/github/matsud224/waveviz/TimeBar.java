@@ -4,11 +4,14 @@ import javax.swing.*;
 import java.awt.*;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.math.BigInteger;
 
-public class TimeBar extends JComponent implements ScaleChangeListener, PropertyChangeListener {
+public class TimeBar extends JComponent implements ViewChangeListener, PropertyChangeListener {
+    private static final BigInteger THOUSAND = BigInteger.valueOf(1000);
     private final Waveviz wavevizObject;
     private int increment;
-    private int pixelsPerUnitTime = 2;
+    private long pixelsPerUnitTime = 2;
+    private long viewX = 0;
     private WaveViewModel model;
 
     public TimeBar(WaveViewModel model, Waveviz wavevizObject, int increment) {
@@ -16,11 +19,8 @@ public class TimeBar extends JComponent implements ScaleChangeListener, Property
         setModel(model);
         this.increment = increment;
 
-        setPreferredSize(new Dimension(10000, wavevizObject.getTimebarHeight()));
-    }
-
-    public void setPreferredWidth(int pw) {
-        setPreferredSize(new Dimension(pw, wavevizObject.getTimebarHeight()));
+        // Stretched to the width of the view; only the part of the time the view shows is painted.
+        setPreferredSize(new Dimension(0, wavevizObject.getTimebarHeight()));
     }
 
     public int getIncrement() {
@@ -31,41 +31,23 @@ public class TimeBar extends JComponent implements ScaleChangeListener, Property
         this.increment = increment;
     }
 
-    private int timeFromXCoordinate(int x) {
-        int t;
-        if (pixelsPerUnitTime > 0) {
-            t = x / pixelsPerUnitTime;
-        } else {
-            t = WavevizUtilities.safeMultiply(x, -pixelsPerUnitTime).orElse(Integer.MAX_VALUE);
-        }
-        return t + model.getStartTime();
-    }
-
-    private int xCoordinateFromTime(int t) {
-        t = t - model.getStartTime();
-        if (pixelsPerUnitTime > 0) {
-            return WavevizUtilities.safeMultiply(t, pixelsPerUnitTime).orElse(Integer.MAX_VALUE);
-        } else {
-            return t / (-pixelsPerUnitTime);
-        }
+    private long timeFromXCoordinate(int x) {
+        return WavevizUtilities.timeOfXCoordinate(x, model.getStartTime(), viewX, pixelsPerUnitTime);
     }
 
-    private int pixelsOfTimeSpan(int t) {
-        if (pixelsPerUnitTime > 0) {
-            return WavevizUtilities.safeMultiply(t, pixelsPerUnitTime).orElse(Integer.MAX_VALUE);
-        } else {
-            return t / (-pixelsPerUnitTime);
-        }
+    private int xCoordinateFromTime(long t) {
+        return WavevizUtilities.xCoordinateOfTime(t, model.getStartTime(), viewX, pixelsPerUnitTime);
     }
 
-    private String timeToLabel(int time) {
+    // Computed in BigInteger, as the multiplier may carry a late time out of the range of long.
+    private String timeToLabel(long t) {
         var ts = model.getTimescale();
-        time = ts.getMultiplier() * time;
+        var time = BigInteger.valueOf(t).multiply(BigInteger.valueOf(ts.getMultiplier()));
         var unit = ts.getTimeUnit();
-        while (time % 1000 == 0) {
+        while (time.mod(THOUSAND).signum() == 0) {
             var nextUnit = unit.getGreaterUnit();
             if (nextUnit.isPresent()) {
-                time /= 1000;
+                time = time.divide(THOUSAND);
                 unit = nextUnit.get();
             } else {
                 break;
@@ -89,25 +71,20 @@ public class TimeBar extends JComponent implements ScaleChangeListener, Property
         if (model.getTimescale() == null)
             return;
 
-        int startTime = timeFromXCoordinate(clipBounds.x);
+        long startTime = timeFromXCoordinate(clipBounds.x);
 
         int upperY = wavevizObject.getWaveYPadding();
         int lowerY = wavevizObject.getTimebarHeight();
 
-        int timeLabelInterval = 100;
-        if (pixelsPerUnitTime > 0) {
-            timeLabelInterval /= pixelsPerUnitTime;
-        } else {
-            timeLabelInterval *= -pixelsPerUnitTime;
-        }
-        if (timeLabelInterval == 0)
-            timeLabelInterval = 1;
+        long timeLabelInterval = Math.max(1, WavevizUtilities.timeSpanOfPixels(100, pixelsPerUnitTime));
 
-        int currentTime = (startTime + (timeLabelInterval - 1)) / timeLabelInterval * timeLabelInterval;
+        long currentTime = Math.floorDiv(startTime, timeLabelInterval) * timeLabelInterval;
+        if (currentTime < startTime && currentTime <= Long.MAX_VALUE - timeLabelInterval)
+            currentTime += timeLabelInterval;
         int currentX = xCoordinateFromTime(currentTime);
 
         while (currentX < clipBounds.x + clipBounds.width) {
-            int rightX = currentX + pixelsOfTimeSpan(timeLabelInterval);
+            int rightX = WavevizUtilities.clampToInt(currentX + WavevizUtilities.pixelsOfTimeSpan(timeLabelInterval, pixelsPerUnitTime));
 
             g2.setColor(wavevizObject.getWaveTextColor());
             var metrics = g2.getFontMetrics();
@@ -117,6 +94,9 @@ public class TimeBar extends JComponent implements ScaleChangeListener, Property
             g2.setColor(wavevizObject.getTimebarLineColor());
             g2.drawLine(currentX, (lowerY - upperY) / 2, currentX, lowerY);
 
+            // There are no labels past the last representable time.
+            if (currentTime > Long.MAX_VALUE - timeLabelInterval)
+                break;
             currentX = rightX;
             currentTime += timeLabelInterval;
         }
@@ -126,9 +106,9 @@ public class TimeBar extends JComponent implements ScaleChangeListener, Property
     }
 
     @Override
-    public void scaleChanged(int pixelsPerUnitTime, int width) {
-        setPreferredWidth(width);
+    public void viewChanged(long pixelsPerUnitTime, long viewX) {
         this.pixelsPerUnitTime = pixelsPerUnitTime;
+        this.viewX = viewX;
         repaint();
     }
 
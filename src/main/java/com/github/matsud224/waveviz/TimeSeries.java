@@ -7,9 +7,36 @@ public interface TimeSeries {
 
     String getType();
 
-    ArrayList<TimeSpan> getValue(int time);
+    int getWidth();
 
-    int getStartTime();
+    ValueWithSpan<String> getValue(long time);
 
-    int getEndTime();
-}
\ No newline at end of file
+    default void getValue(long time, ValueSpan span) {
+        var value = getValue(time);
+        span.set(value.getValue(), value.getTimeSpan().getStartTime(), value.getTimeSpan().getEndTime());
+    }
+
+    // False while the changes are still to be read from a dump loaded on demand.
+    default boolean isLoaded() {
+        return true;
+    }
+
+    // Walks the changes one by one, for callers that visit many consecutive values.
+    default ChangeCursor newCursor() {
+        return new SpanCursor(this);
+    }
+
+    // Smallest and largest number of a real variable within the time range, see ValueChangeStore.getRealRange.
+    default boolean getRealRange(long startTime, long endTime, double[] range) {
+        return false;
+    }
+
+    // What happens within the time range, see ValueChangeStore.summarize.
+    default boolean summarize(long startTime, long endTime, ChangeSummary summary) {
+        return false;
+    }
+
+    long getStartTime();
+
+    long getEndTime();
+}
@@ -1,19 +1,19 @@
 package com.github.matsud224.waveviz;
 
 public class TimeSpan {
-    private final int startTime;
-    private final int endTime;
+    private final long startTime;
+    private final long endTime;
 
-    public TimeSpan(int startTime, int endTime) {
+    public TimeSpan(long startTime, long endTime) {
         this.startTime = startTime;
         this.endTime = endTime;
     }
 
-    public int getStartTime() {
+    public long getStartTime() {
         return startTime;
     }
 
-    public int getEndTime() {
+    public long getEndTime() {
         return endTime;
     }
 }
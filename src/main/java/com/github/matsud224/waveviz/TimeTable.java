@@ -0,0 +1,50 @@
+package com.github.matsud224.waveviz;
+
+import java.util.Arrays;
+
+// Sorted timestamps of every "#time" in a dump, shared by all of its signals so that stores only
+// keep indices into it. Appended to by the parser while the UI reads from it.
+public class TimeTable {
+    private volatile long[] times = new long[1024];
+    private volatile int size = 0;
+
+    public int size() {
+        return size;
+    }
+
+    public long timeAt(int index) {
+        return times[index];
+    }
+
+    // Returns the index of the time, appending it if it is later than every known time.
+    synchronized int add(long time) {
+        int n = size;
+        if (n > 0 && times[n - 1] >= time) {
+            int index = indexOf(time);
+            if (index < 0)
+                throw new IllegalArgumentException("time " + time + " is earlier than the last time of the dump");
+            return index;
+        }
+        if (n == times.length)
+            times = Arrays.copyOf(times, n * 2);
+        times[n] = time;
+        size = n + 1;
+        return n;
+    }
+
+    // Returns -1 if the time is not in the table.
+    public int indexOf(long time) {
+        int index = floorIndex(time);
+        return index >= 0 && times[index] == time ? index : -1;
+    }
+
+    // Index of the last time at or before the given one, or -1 if there is none.
+    public int floorIndex(long time) {
+        int n = size;
+        var t = times;
+        if (n > 0 && t[n - 1] <= time)
+            return n - 1;
+        int index = Arrays.binarySearch(t, 0, n, time);
+        return index >= 0 ? index : -index - 2;
+    }
+}
@@ -0,0 +1,29 @@
+package com.github.matsud224.waveviz;
+
+// Time range shared by all signals of a dump. The end time moves forward while the dump is being loaded.
+public class Timeline {
+    private volatile long endTime = 0;
+    private final TimeTable timeTable;
+
+    public Timeline() {
+        this(null);
+    }
+
+    // Stores of a timeline with a time table keep indices into it instead of times.
+    public Timeline(TimeTable timeTable) {
+        this.timeTable = timeTable;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(long endTime) {
+        this.endTime = endTime;
+    }
+
+    // Returns null if the reader of the dump does not collect the times up front.
+    public TimeTable getTimeTable() {
+        return timeTable;
+    }
+}
@@ -0,0 +1,13 @@
+package com.github.matsud224.waveviz;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public interface VCDByteSource extends Closeable {
+    // Returns null at the end of input. The returned buffer is only valid until the next call.
+    ByteBuffer next() throws IOException;
+
+    // Returns -1 if unknown.
+    long length();
+}
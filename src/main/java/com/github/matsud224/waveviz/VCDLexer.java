@@ -0,0 +1,167 @@
+package com.github.matsud224.waveviz;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Allocation-free byte cursor over a VCDByteSource. Tokens may straddle buffer boundaries.
+final class VCDLexer {
+    static final int EOF = -1;
+
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private final VCDByteSource source;
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    private ByteBuffer window;
+    private byte[] data = chunk;
+    private int pos = 0;
+    private int limit = 0;
+    private long filled = 0;
+    private byte[] word = new byte[256];
+    private int wordLength = 0;
+    private byte[] keptWord = new byte[256];
+    private int keptWordLength = 0;
+
+    VCDLexer(VCDByteSource source) {
+        this.source = source;
+    }
+
+    // Number of bytes consumed so far.
+    long position() {
+        return filled - (limit - pos);
+    }
+
+    private boolean fill() throws IOException {
+        while (window == null || !window.hasRemaining()) {
+            window = source.next();
+            if (window == null) {
+                pos = limit;
+                return false;
+            }
+        }
+        int n = window.remaining();
+        if (window.hasArray()) {
+            data = window.array();
+            pos = window.arrayOffset() + window.position();
+            limit = pos + n;
+            window.position(window.limit());
+        } else {
+            n = Math.min(n, CHUNK_SIZE);
+            window.get(chunk, 0, n);
+            data = chunk;
+            pos = 0;
+            limit = n;
+        }
+        filled += n;
+        return true;
+    }
+
+    int peek() throws IOException {
+        if (pos < limit || fill())
+            return data[pos] & 0xff;
+        return EOF;
+    }
+
+    int read() throws IOException {
+        if (pos < limit || fill())
+            return data[pos++] & 0xff;
+        return EOF;
+    }
+
+    void skipWhitespaces() throws IOException {
+        while (true) {
+            while (pos < limit) {
+                if ((data[pos] & 0xff) > ' ')
+                    return;
+                pos++;
+            }
+            if (!fill())
+                return;
+        }
+    }
+
+    // Reads the next whitespace-delimited token into the internal word buffer and returns its length.
+    int readWordBytes() throws IOException {
+        skipWhitespaces();
+        int n = 0;
+        while (true) {
+            while (pos < limit) {
+                byte b = data[pos];
+                if ((b & 0xff) <= ' ') {
+                    wordLength = n;
+                    return n;
+                }
+                if (n == word.length) {
+                    var newWord = new byte[word.length * 2];
+                    System.arraycopy(word, 0, newWord, 0, n);
+                    word = newWord;
+                }
+                word[n++] = b;
+                pos++;
+            }
+            if (!fill()) {
+                wordLength = n;
+                return n;
+            }
+        }
+    }
+
+    // Buffer holding the last token read by readWordBytes(). Only valid until the next read.
+    byte[] wordBytes() {
+        return word;
+    }
+
+    String wordToString() {
+        return new String(word, 0, wordLength, StandardCharsets.UTF_8);
+    }
+
+    // Sets the last token aside so that it survives the next readWordBytes().
+    void keepWord() {
+        var tmp = keptWord;
+        keptWord = word;
+        keptWordLength = wordLength;
+        word = tmp;
+        wordLength = 0;
+    }
+
+    String keptWordToString() {
+        return new String(keptWord, 0, keptWordLength, StandardCharsets.UTF_8);
+    }
+
+    String readWord() throws IOException {
+        return readWordBytes() == 0 ? null : wordToString();
+    }
+
+    // Compares the last token read by readWordBytes() with an ASCII string.
+    boolean wordEquals(String expected) {
+        int n = wordLength;
+        if (n != expected.length())
+            return false;
+        for (int i = 0; i < n; i++) {
+            if (word[i] != expected.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    // Returns -1 if no digits follow.
+    long readDecimalNumber() throws IOException, VCDParser.InvalidVCDFormatException {
+        skipWhitespaces();
+        long value = 0;
+        boolean hasDigits = false;
+        while (true) {
+            while (pos < limit) {
+                int d = data[pos] - '0';
+                if (d < 0 || d > 9)
+                    return hasDigits ? value : -1;
+                if (value > (Long.MAX_VALUE - d) / 10)
+                    throw new VCDParser.InvalidVCDFormatException("number is too large");
+                value = value * 10 + d;
+                hasDigits = true;
+                pos++;
+            }
+            if (!fill())
+                return hasDigits ? value : -1;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.github.matsud224.waveviz;
+
+import com.github.matsud224.waveviz.VCDParser.ParseResult;
+
+import javax.swing.*;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+// Parses a dump off the EDT. Signals become usable as soon as the declarations are read
+// and keep growing while the rest of the file is parsed.
+public class VCDLoadWorker extends SwingWorker<ParseResult, VCDLoadWorker.Progress> implements ParseProgressListener {
+    private final String name;
+    private final Loader loader;
+    private final boolean follow;
+    private final StatusBar statusBar;
+    private final Consumer<ParseResult> definitionsHandler;
+    private final Runnable updateHandler;
+    private volatile long startedAt;
+    private volatile Timeline timeline;
+    private Progress lastProgress;
+
+    public interface Loader {
+        ParseResult load(VCDParser.ParseOptions options) throws IOException, VCDParser.InvalidVCDFormatException;
+    }
+
+    static class Progress {
+        private final long consumedBytes;
+        private final long totalBytes;
+        private final long changeCount;
+        private final long reportedAt;
+
+        private Progress(long consumedBytes, long totalBytes, long changeCount, long reportedAt) {
+            this.consumedBytes = consumedBytes;
+            this.totalBytes = totalBytes;
+            this.changeCount = changeCount;
+            this.reportedAt = reportedAt;
+        }
+    }
+
+    // updateHandler is called on the EDT whenever more value changes are available.
+    public VCDLoadWorker(String name, Loader loader, boolean follow, StatusBar statusBar,
+                         Consumer<ParseResult> definitionsHandler, Runnable updateHandler) {
+        this.name = name;
+        this.loader = loader;
+        this.follow = follow;
+        this.statusBar = statusBar;
+        this.definitionsHandler = definitionsHandler;
+        this.updateHandler = updateHandler;
+    }
+
+    public boolean isFollowing() {
+        return follow && !isDone();
+    }
+
+    @Override
+    protected ParseResult doInBackground() throws Exception {
+        startedAt = System.nanoTime();
+        var options = new VCDParser.ParseOptions();
+        options.setProgressListener(this);
+        options.setFollow(follow);
+        return loader.load(options);
+    }
+
+    @Override
+    public void definitionsParsed(ParseResult result) {
+        timeline = result.getTimeline();
+        SwingUtilities.invokeLater(() -> {
+            // A newer load may have replaced this one in the meantime.
+            if (!isCancelled())
+                definitionsHandler.accept(result);
+        });
+    }
+
+    @Override
+    public void progressed(long consumedBytes, long totalBytes, long changeCount) {
+        publish(new Progress(consumedBytes, totalBytes, changeCount, System.nanoTime()));
+    }
+
+    @Override
+    protected void process(List<Progress> chunks) {
+        if (isCancelled())
+            return;
+        var last = chunks.get(chunks.size() - 1);
+        // Rate since the previous update, so that a stalled simulator shows up as 0.
+        var previous = lastProgress != null ? lastProgress : new Progress(0, 0, 0, startedAt);
+        double seconds = Math.max(1e-3, (last.reportedAt - previous.reportedAt) / 1e9);
+        var rate = String.format("%.0f changes/s, %.2f MB/s",
+                (last.changeCount - previous.changeCount) / seconds, (last.consumedBytes - previous.consumedBytes) / 1e6 / seconds);
+        lastProgress = last;
+
+        String message;
+        if (last.totalBytes < 0)
+            message = String.format("%s %s: %.1f MB up to time %d, %s", follow ? "Following" : "Loading", name,
+                    last.consumedBytes / 1e6, timeline.getEndTime(), rate);
+        else
+            message = String.format("Loading %s: %.1f / %.1f MB, %s", name,
+                    last.consumedBytes / 1e6, last.totalBytes / 1e6, rate);
+        statusBar.showProgress(message, last.consumedBytes, last.totalBytes);
+        updateHandler.run();
+    }
+
+    @Override
+    protected void done() {
+        updateHandler.run();
+        if (isCancelled()) {
+            statusBar.showMessage(cancelledMessage());
+            return;
+        }
+        try {
+            get();
+            statusBar.showMessage(String.format("Loaded %s in %.1f s.", name, (System.nanoTime() - startedAt) / 1e9));
+        } catch (InterruptedException | CancellationException e) {
+            statusBar.showMessage(cancelledMessage());
+        } catch (ExecutionException e) {
+            statusBar.showMessage(String.format("Failed to load %s.", name));
+            var cause = e.getCause();
+            if (cause instanceof CancellationException) {
+                statusBar.showMessage(cancelledMessage());
+            } else if (cause instanceof IOException) {
+                JOptionPane.showMessageDialog(statusBar,
+                        "Failed to read file:\n" + cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            } else if (cause instanceof VCDParser.InvalidVCDFormatException) {
+                JOptionPane.showMessageDialog(statusBar,
+                        "Failed to parse VCD format: \n" + cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            } else {
+                JOptionPane.showMessageDialog(statusBar,
+                        "Failed to load file:\n" + cause, "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+
+    private String cancelledMessage() {
+        if (follow && timeline != null)
+            return String.format("Stopped following %s at time %d.", name, timeline.getEndTime());
+        return String.format("Loading %s was cancelled.", name);
+    }
+}
@@ -1,10 +1,24 @@
 package com.github.matsud224.waveviz;
 
 import java.io.IOException;
-import java.io.PushbackReader;
-import java.io.Reader;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
 
 public final class VCDParser {
     public static class InvalidVCDFormatException extends Exception {
@@ -13,57 +27,66 @@ public final class VCDParser {
         }
     }
 
-    private static ParserInternalData parseDeclarationCommands(PushbackReader reader, String name)
+    private static ParserInternalData parseDeclarationCommands(VCDLexer lexer, String name,
+                                                               BiFunction<Timeline, Boolean, ValueChangeStore> storeFactory)
             throws IOException, InvalidVCDFormatException {
         var metaData = new MetaData();
-        var storeMap = new HashMap<String, ValueChangeStore>();
+        var storeIndexMap = new HashMap<String, Integer>();
+        var stores = new ArrayList<ValueChangeStore>();
+        // Changes before the first #time are at time 0.
+        var timeTable = new TimeTable();
+        timeTable.add(0);
+        var timeline = new Timeline(timeTable);
         var root = new HierarchyTree(name, "FILE", null);
         var currentScope = root;
         while (true) {
-            var kwOpt = parseDeclarationKeyword(reader);
+            var kwOpt = parseDeclarationKeyword(lexer);
             if (kwOpt.isEmpty())
                 break;
             switch (kwOpt.get()) {
                 case COMMENT:
-                    var commentStr = consumeUntilEnd(reader);
+                    var commentStr = consumeUntilEnd(lexer);
                     metaData.setComment(commentStr);
                     break;
                 case DATE:
-                    var dateStr = consumeUntilEnd(reader);
+                    var dateStr = consumeUntilEnd(lexer);
                     metaData.setDate(dateStr);
                     break;
                 case ENDDEFINITIONS:
-                    return new ParserInternalData(root, storeMap, metaData);
+                    consumeEnd(lexer);
+                    return new ParserInternalData(root, new IdCodeTable(storeIndexMap), stores.toArray(new ValueChangeStore[0]), timeline, metaData);
                 case SCOPE:
-                    var scopeType = parseScopeType(reader).orElseThrow(() -> new InvalidVCDFormatException("expected scope type of $scope"));
-                    var scopeIdentifier = readWord(reader).orElseThrow(() -> new InvalidVCDFormatException("expected scope identifier of $scope"));
-                    consumeEnd(reader);
+                    var scopeType = parseScopeType(lexer).orElseThrow(() -> new InvalidVCDFormatException("expected scope type of $scope"));
+                    var scopeIdentifier = readWord(lexer).orElseThrow(() -> new InvalidVCDFormatException("expected scope identifier of $scope"));
+                    consumeEnd(lexer);
                     var scope = new HierarchyTree(scopeIdentifier, scopeType.toString(), currentScope);
                     currentScope.children.add(scope);
                     currentScope = scope;
                     break;
                 case TIMESCALE:
-                    var multiplier = parseTimescaleMultiplier(reader).orElseThrow(() -> new InvalidVCDFormatException("expected time number of $timescale"));
-                    var timeUnit = parseTimeUnit(reader).orElseThrow(() -> new InvalidVCDFormatException("expected time unit of $timescale"));
-                    consumeEnd(reader);
+                    var multiplier = parseTimescaleMultiplier(lexer).orElseThrow(() -> new InvalidVCDFormatException("expected time number of $timescale"));
+                    var timeUnit = parseTimeUnit(lexer).orElseThrow(() -> new InvalidVCDFormatException("expected time unit of $timescale"));
+                    consumeEnd(lexer);
                     metaData.setTimeScale(new Timescale(multiplier, timeUnit));
                     break;
                 case UPSCOPE:
-                    consumeEnd(reader);
+                    consumeEnd(lexer);
                     currentScope = currentScope.getParent();
                     break;
                 case VAR:
-                    var varType = parseVarType(reader).orElseThrow(() -> new InvalidVCDFormatException("expected var type of $var"));
-                    var size = Integer.parseInt(readWord(reader).orElseThrow(() -> new InvalidVCDFormatException("expected size of $var")));
-                    var identifier = readWord(reader).orElseThrow(() -> new InvalidVCDFormatException("expected identifier of $var"));
-                    var reference = getReference(reader);
-                    consumeEnd(reader);
-
-                    var store = storeMap.get(identifier);
-                    if (store == null) {
-                        store = new ValueChangeStore();
-                        storeMap.put(identifier, store);
+                    var varType = parseVarType(lexer).orElseThrow(() -> new InvalidVCDFormatException("expected var type of $var"));
+                    var size = Integer.parseInt(readWord(lexer).orElseThrow(() -> new InvalidVCDFormatException("expected size of $var")));
+                    var identifier = readWord(lexer).orElseThrow(() -> new InvalidVCDFormatException("expected identifier of $var"));
+                    var reference = getReference(lexer);
+                    consumeEnd(lexer);
+
+                    var storeIndex = storeIndexMap.get(identifier);
+                    if (storeIndex == null) {
+                        storeIndex = stores.size();
+                        stores.add(storeFactory.apply(timeline, varType == VarType.REAL || varType == VarType.REALTIME));
+                        storeIndexMap.put(identifier, storeIndex);
                     }
+                    var store = stores.get(storeIndex);
 
                     var path = currentScope.getPath();
                     path.add(reference);
@@ -71,7 +94,7 @@ public final class VCDParser {
                     currentScope.signals.add(signal);
                     break;
                 case VERSION:
-                    var versionStr = consumeUntilEnd(reader);
+                    var versionStr = consumeUntilEnd(lexer);
                     metaData.setVersion(versionStr);
                     break;
             }
@@ -79,14 +102,30 @@ public final class VCDParser {
         throw new InvalidVCDFormatException("no declaration commands found");
     }
 
+    private static final String[] SCALAR_VALUES = new String[128];
+
+    static {
+        for (var c : "01xXzZ".toCharArray())
+            SCALAR_VALUES[c] = Character.toString(c);
+    }
+
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final long MIN_CHUNK_SIZE = 1L << 22;
+    private static final long PROGRESS_INTERVAL_NANOS = 100_000_000L;
+    private static final long DEFAULT_MEMORY_BUDGET = 512L << 20;
+
     private static class ParserInternalData {
         private final HierarchyTree hierarchy;
-        private final HashMap<String, ValueChangeStore> storeMap;
+        private final IdCodeTable idCodes;
+        private final ValueChangeStore[] stores;
+        private final Timeline timeline;
         private final MetaData metaData;
 
-        private ParserInternalData(HierarchyTree hierarchy, HashMap<String, ValueChangeStore> storeMap, MetaData metaData) {
+        private ParserInternalData(HierarchyTree hierarchy, IdCodeTable idCodes, ValueChangeStore[] stores, Timeline timeline, MetaData metaData) {
             this.hierarchy = hierarchy;
-            this.storeMap = storeMap;
+            this.idCodes = idCodes;
+            this.stores = stores;
+            this.timeline = timeline;
             this.metaData = metaData;
         }
 
@@ -94,8 +133,16 @@ public final class VCDParser {
             return hierarchy;
         }
 
-        public HashMap<String, ValueChangeStore> getStoreMap() {
-            return storeMap;
+        public IdCodeTable getIdCodes() {
+            return idCodes;
+        }
+
+        public ValueChangeStore[] getStores() {
+            return stores;
+        }
+
+        public Timeline getTimeline() {
+            return timeline;
         }
 
         public MetaData getMetaData() {
@@ -103,13 +150,302 @@ public final class VCDParser {
         }
     }
 
+    private interface ValueChangeSink {
+        void addChange(int storeIndex, long time, String value);
+
+        // Called at every #time command, with the number of bytes consumed so far.
+        void advanceTime(long time, long position);
+
+        // Changes of stores that are not accepted are skipped before their value is decoded.
+        default boolean accepts(int storeIndex) {
+            return true;
+        }
+    }
+
+    // Appends straight to the stores, publishing the parsed time range as it goes.
+    private static class StoreSink implements ValueChangeSink {
+        private final ValueChangeStore[] stores;
+        private final Timeline timeline;
+        private final ParseProgressListener listener;
+        private final long totalBytes;
+        private long nextReportTime = System.nanoTime() + PROGRESS_INTERVAL_NANOS;
+        private long changeCount = 0;
+
+        private StoreSink(ParserInternalData internalData, ParseProgressListener listener, long totalBytes) {
+            this.stores = internalData.getStores();
+            this.timeline = internalData.getTimeline();
+            this.listener = listener;
+            this.totalBytes = totalBytes;
+        }
+
+        @Override
+        public void addChange(int storeIndex, long time, String value) {
+            stores[storeIndex].addChange(time, value);
+            changeCount++;
+        }
+
+        @Override
+        public void advanceTime(long time, long position) {
+            timeline.getTimeTable().add(time);
+            // Every change before this time has been stored.
+            if (time > 0)
+                timeline.setEndTime(Math.max(timeline.getEndTime(), time - 1));
+            if (listener != null && System.nanoTime() >= nextReportTime) {
+                nextReportTime = System.nanoTime() + PROGRESS_INTERVAL_NANOS;
+                listener.progressed(position, totalBytes, changeCount);
+                if (listener.isCancelled())
+                    throw new CancellationException();
+            }
+        }
+    }
+
+    // Value changes of one chunk of the simulation section, kept apart until all chunks are parsed.
+    private static class ChangeLog implements ValueChangeSink {
+        private int[] storeIndices = new int[1024];
+        // Changes refer to their time by its index in timeList, -1 standing for the time 0 a chunk starts at.
+        private int[] timeIndices = new int[1024];
+        private String[] values = new String[1024];
+        private int size = 0;
+        private long lastTime = 0;
+        private long[] timeList = new long[64];
+        private int timeCount = 0;
+        private final ParseProgressListener listener;
+        private final boolean[] wanted;
+
+        // wanted selects the stores to keep changes of, or is null to keep all of them.
+        private ChangeLog(ParseProgressListener listener, boolean[] wanted) {
+            this.listener = listener;
+            this.wanted = wanted;
+        }
+
+        @Override
+        public boolean accepts(int storeIndex) {
+            return wanted == null || wanted[storeIndex];
+        }
+
+        @Override
+        public void advanceTime(long time, long position) {
+            if (timeCount == timeList.length)
+                timeList = Arrays.copyOf(timeList, timeCount * 2);
+            timeList[timeCount++] = time;
+            lastTime = time;
+            if (listener != null && listener.isCancelled())
+                throw new CancellationException();
+        }
+
+        @Override
+        public void addChange(int storeIndex, long time, String value) {
+            if (size == timeIndices.length) {
+                int newLength = size * 2;
+                storeIndices = Arrays.copyOf(storeIndices, newLength);
+                timeIndices = Arrays.copyOf(timeIndices, newLength);
+                values = Arrays.copyOf(values, newLength);
+            }
+            storeIndices[size] = storeIndex;
+            timeIndices[size] = timeCount - 1;
+            values[size] = value;
+            size++;
+        }
+
+        // Stable counting sort, so that the changes of each store stay in time order.
+        private void sortByStore(int storeCount) {
+            var counts = new int[storeCount + 1];
+            for (int i = 0; i < size; i++)
+                counts[storeIndices[i] + 1]++;
+            for (int i = 0; i < storeCount; i++)
+                counts[i + 1] += counts[i];
+            var sortedStoreIndices = new int[size];
+            var sortedTimeIndices = new int[size];
+            var sortedValues = new String[size];
+            for (int i = 0; i < size; i++) {
+                int to = counts[storeIndices[i]]++;
+                sortedStoreIndices[to] = storeIndices[i];
+                sortedTimeIndices[to] = timeIndices[i];
+                sortedValues[to] = values[i];
+            }
+            storeIndices = sortedStoreIndices;
+            timeIndices = sortedTimeIndices;
+            values = sortedValues;
+        }
+
+        private int findFirst(int storeIndex) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (storeIndices[mid] < storeIndex)
+                    low = mid + 1;
+                else
+                    high = mid;
+            }
+            return low;
+        }
+
+        // Adds the times of this chunk to the time table. Must be called in file order.
+        // Each chunk only checks its own times, so a chunk starting before the last one ends is caught here.
+        private void registerTimes(TimeTable timeTable) throws InvalidVCDFormatException {
+            int known = timeTable.size();
+            if (timeCount > 0 && known > 0 && timeList[0] < timeTable.timeAt(known - 1))
+                throw new InvalidVCDFormatException("time goes backwards at #" + timeList[0]);
+            for (int i = 0; i < timeCount; i++)
+                timeTable.add(timeList[i]);
+        }
+
+        private void replay(ValueChangeStore[] stores, int fromStore, int toStore) {
+            for (int i = findFirst(fromStore); i < size && storeIndices[i] < toStore; i++)
+                stores[storeIndices[i]].addChange(timeIndices[i] < 0 ? 0 : timeList[timeIndices[i]], values[i]);
+        }
+    }
+
+    public static class ParseOptions {
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private ParseProgressListener progressListener;
+        private boolean follow = false;
+        private boolean lazy = false;
+        private boolean useCache = false;
+        private Runnable signalsLoadedListener;
+        private boolean offHeap = false;
+        private boolean compressed = false;
+        private long memoryBudget = DEFAULT_MEMORY_BUDGET;
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        // Number of threads used for the simulation section, by default one per processor.
+        // 1 parses sequentially.
+        public void setParallelism(int parallelism) {
+            this.parallelism = Math.max(1, parallelism);
+        }
+
+        public ParseProgressListener getProgressListener() {
+            return progressListener;
+        }
+
+        public void setProgressListener(ParseProgressListener progressListener) {
+            this.progressListener = progressListener;
+        }
+
+        public boolean isFollow() {
+            return follow;
+        }
+
+        // Keep reading a file that is still being written until the progress listener cancels.
+        // Named pipes are read until the writer closes them. Always parses sequentially.
+        public void setFollow(boolean follow) {
+            this.follow = follow;
+        }
+
+        public boolean isLazy() {
+            return lazy;
+        }
+
+        // Only index the simulation section and read the changes of a signal when it is first used.
+        // Ignored when following.
+        public void setLazy(boolean lazy) {
+            this.lazy = lazy;
+        }
+
+        public boolean isUseCache() {
+            return useCache;
+        }
+
+        // Open files from their sidecar cache when it is up to date, and write it after a full parse.
+        public void setUseCache(boolean useCache) {
+            this.useCache = useCache;
+        }
+
+        public Runnable getSignalsLoadedListener() {
+            return signalsLoadedListener;
+        }
+
+        // Called from a background thread whenever signals of a lazily loaded dump have been read.
+        public void setSignalsLoadedListener(Runnable signalsLoadedListener) {
+            this.signalsLoadedListener = signalsLoadedListener;
+        }
+
+        public boolean isOffHeap() {
+            return offHeap;
+        }
+
+        // Keep value changes outside of the Java heap: in direct buffers up to the memory budget,
+        // and in memory-mapped temporary files beyond it.
+        public void setOffHeap(boolean offHeap) {
+            this.offHeap = offHeap;
+        }
+
+        public boolean isCompressed() {
+            return compressed;
+        }
+
+        // Keep value changes in compressed blocks that are decoded on access. Takes precedence over off-heap storage.
+        public void setCompressed(boolean compressed) {
+            this.compressed = compressed;
+        }
+
+        public long getMemoryBudget() {
+            return memoryBudget;
+        }
+
+        // Bytes of direct memory used per dump before spilling to temporary files.
+        public void setMemoryBudget(long memoryBudget) {
+            this.memoryBudget = Math.max(0, memoryBudget);
+        }
+
+        // Each call creates the storage for one dump. The flag tells whether the variable is a real.
+        // Only heap stores keep reals as numbers, the other backends store them as text in the form of
+        // WavevizUtilities.formatReal, so that a real reads the same from any of them.
+        BiFunction<Timeline, Boolean, ValueChangeStore> newStoreFactory() {
+            if (compressed)
+                return CompressedValueChangeStore::new;
+            if (!offHeap)
+                return HeapValueChangeStore::new;
+            var arena = new OffHeapArena(memoryBudget);
+            return (timeline, real) -> new OffHeapValueChangeStore(timeline, arena, real);
+        }
+    }
+
+    // Reads the changes of requested stores for a lazily loaded dump, one pass over the file per batch.
+    private static class LazyLoader extends BatchedStoreLoader {
+        private final Path path;
+        private final ParserInternalData internalData;
+        private final SimulationIndex index;
+        private final int parallelism;
+
+        private LazyLoader(Path path, String name, ParserInternalData internalData, SimulationIndex index, ParseOptions options) {
+            super(name, internalData.getStores(), options.getSignalsLoadedListener());
+            this.path = path;
+            this.internalData = internalData;
+            this.index = index;
+            this.parallelism = options.getParallelism();
+        }
+
+        @Override
+        protected void load(boolean[] wanted) throws IOException, InvalidVCDFormatException {
+            var pool = new ForkJoinPool(parallelism);
+            try {
+                parseSimulationCommandsInParallel(path, index.getBoundaries(parallelism * CHUNKS_PER_THREAD), internalData, pool, null, wanted);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
     public static class ParseResult {
         private final HierarchyTree hierarchy;
         private final MetaData metaData;
+        private final Timeline timeline;
+        private final ValueChangeStore[] stores;
 
-        private ParseResult(HierarchyTree hierarchy, MetaData metaData) {
+        private ParseResult(ParserInternalData internalData) {
+            this(internalData.getHierarchy(), internalData.getMetaData(), internalData.getTimeline(), internalData.getStores());
+        }
+
+        ParseResult(HierarchyTree hierarchy, MetaData metaData, Timeline timeline, ValueChangeStore[] stores) {
             this.hierarchy = hierarchy;
             this.metaData = metaData;
+            this.timeline = timeline;
+            this.stores = stores;
         }
 
         public HierarchyTree getHierarchy() {
@@ -119,6 +455,23 @@ public final class VCDParser {
         public MetaData getMetaData() {
             return metaData;
         }
+
+        public Timeline getTimeline() {
+            return timeline;
+        }
+
+        ValueChangeStore[] getStores() {
+            return stores;
+        }
+
+        // Stops loading signals on demand and releases the file they are read from.
+        public void close() {
+            for (var store : stores) {
+                var loader = store.getLoader();
+                if (loader != null)
+                    loader.close();
+            }
+        }
     }
 
     private enum DeclarationKeyword {
@@ -138,46 +491,138 @@ public final class VCDParser {
         TRI, TRIAND, TRIOR, TRIREG, TRI0, TRI1, WAND, WIRE, WOR
     }
 
-    public static ParseResult parse(Reader reader, String name) throws IOException, InvalidVCDFormatException {
-        var internalData = parseDeclarationCommands(new PushbackReader(reader, 1024), name);
-        var lastTime = parseSimulationCommands(internalData, new PushbackReader(reader, 1024));
-        internalData.storeMap.forEach((k, v) -> v.addChange(lastTime, null));
-        return new ParseResult(internalData.getHierarchy(), internalData.getMetaData());
+    public static ParseResult parse(Path path, String name) throws IOException, InvalidVCDFormatException {
+        return parse(path, name, new ParseOptions());
     }
 
-    private static Optional<Integer> parseTimescaleMultiplier(PushbackReader reader) throws IOException {
-        skipWhitespaces(reader);
-        var c = reader.read();
-        if (c != '1') {
-            if (c != -1) reader.unread(c);
-            return Optional.empty();
+    public static ParseResult parse(Path path, String name, ParseOptions options) throws IOException, InvalidVCDFormatException {
+        if (options.isFollow()) {
+            var listener = options.getProgressListener();
+            BooleanSupplier stopRequested = listener != null ? listener::isCancelled : () -> false;
+            // A compressed dump cannot be followed, since its end is only valid once it is complete.
+            if (GzipByteSource.isGzipFile(path))
+                return parseFile(path, name, options);
+            try (VCDByteSource source = Files.isRegularFile(path)
+                    ? new FollowingFileByteSource(path, stopRequested)
+                    : new StreamByteSource(Files.newInputStream(path))) {
+                return parse(source, name, options);
+            }
         }
-        c = reader.read();
-        if (c != '0') {
-            if (c != -1) reader.unread(c);
-            return Optional.of(1);
+        if (!options.isUseCache())
+            return parseFile(path, name, options);
+
+        var listener = options.getProgressListener();
+        long size = Files.size(path);
+        long modifiedTime = Files.getLastModifiedTime(path).toMillis();
+        var cached = SidecarCache.read(path, name);
+        if (cached.isPresent()) {
+            if (listener != null) {
+                listener.definitionsParsed(cached.get());
+                listener.progressed(size, size, 0);
+            }
+            return cached.get();
         }
-        c = reader.read();
-        if (c != '0') {
-            if (c != -1) reader.unread(c);
-            return Optional.of(10);
+
+        var result = parseFile(path, name, options);
+        if (!options.isLazy() || GzipByteSource.isGzipFile(path)) {
+            try {
+                SidecarCache.write(path, size, modifiedTime, result);
+            } catch (IOException e) {
+                System.out.printf("Failed to write cache of %s: %s\n", name, e.getMessage());
+            }
         }
-        return Optional.of(100);
+        return result;
     }
 
-    private static String getReference(PushbackReader reader) throws InvalidVCDFormatException, IOException {
-        var identifier = readWord(reader).orElseThrow(() -> new InvalidVCDFormatException("expected identifier of reference"));
+    private static ParseResult parseFile(Path path, String name, ParseOptions options) throws IOException, InvalidVCDFormatException {
+        // Compressed dumps cannot be split or indexed, so they are always parsed sequentially.
+        if (GzipByteSource.isGzipFile(path)) {
+            try (var source = new GzipByteSource(path)) {
+                return parse(source, name, options);
+            }
+        }
+        if (options.getParallelism() == 1 && !options.isLazy()) {
+            try (var source = new MappedFileByteSource(path)) {
+                return parse(source, name, options);
+            }
+        }
 
-        skipWhitespaces(reader);
-        var c = reader.read();
-        if (c != '[') {
-            if (c != -1) reader.unread(c);
-            return identifier;
+        var listener = options.getProgressListener();
+        ParserInternalData internalData;
+        long simulationStart;
+        try (var source = new MappedFileByteSource(path)) {
+            var lexer = new VCDLexer(source);
+            internalData = parseDeclarationCommands(lexer, name, options.newStoreFactory());
+            simulationStart = lexer.position();
         }
-        var index0 = readDecimalNumber(reader).orElseThrow(() -> new InvalidVCDFormatException("expected index of reference"));
+        var result = new ParseResult(internalData);
+        if (listener != null)
+            listener.definitionsParsed(result);
+
+        if (options.isLazy()) {
+            var index = SimulationIndex.build(path, simulationStart, MIN_CHUNK_SIZE, internalData.getTimeline().getTimeTable());
+            internalData.getTimeline().setEndTime(index.getEndTime());
+            new LazyLoader(path, name, internalData, index, options).attach();
+            if (listener != null) {
+                long totalBytes = index.getOffsets()[index.getOffsets().length - 1];
+                listener.progressed(totalBytes, totalBytes, 0);
+            }
+            return result;
+        }
+
+        var pool = new ForkJoinPool(options.getParallelism());
+        try {
+            var boundaries = splitSimulationSection(path, simulationStart, options.getParallelism() * CHUNKS_PER_THREAD);
+            var lastTime = parseSimulationCommandsInParallel(path, boundaries, internalData, pool, listener, null);
+            internalData.getTimeline().setEndTime(lastTime);
+        } finally {
+            pool.shutdown();
+        }
+        return result;
+    }
+
+    public static ParseResult parse(InputStream stream, String name) throws IOException, InvalidVCDFormatException {
+        return parse(new StreamByteSource(stream), name, new ParseOptions());
+    }
+
+    public static ParseResult parse(VCDByteSource source, String name) throws IOException, InvalidVCDFormatException {
+        return parse(source, name, new ParseOptions());
+    }
+
+    public static ParseResult parse(VCDByteSource source, String name, ParseOptions options) throws IOException, InvalidVCDFormatException {
+        var listener = options.getProgressListener();
+        var lexer = new VCDLexer(source);
+        var internalData = parseDeclarationCommands(lexer, name, options.newStoreFactory());
+        var result = new ParseResult(internalData);
+        if (listener != null)
+            listener.definitionsParsed(result);
+
+        var sink = new StoreSink(internalData, listener, source.length());
+        var lastTime = parseSimulationCommands(internalData, lexer, sink);
+        internalData.getTimeline().setEndTime(lastTime);
+        if (listener != null)
+            listener.progressed(lexer.position(), source.length(), sink.changeCount);
+        return result;
+    }
+
+    private static Optional<Integer> parseTimescaleMultiplier(VCDLexer lexer) throws IOException, InvalidVCDFormatException {
+        var multiplier = lexer.readDecimalNumber();
+        if (multiplier < 0 || multiplier > Integer.MAX_VALUE)
+            return Optional.empty();
+        return Optional.of((int) multiplier);
+    }
 
-        skipWhitespaces(reader);
-        switch (reader.read()) {
+    private static String getReference(VCDLexer lexer) throws InvalidVCDFormatException, IOException {
+        var identifier = readWord(lexer).orElseThrow(() -> new InvalidVCDFormatException("expected identifier of reference"));
+
+        lexer.skipWhitespaces();
+        if (lexer.peek() != '[')
+            return identifier;
+        lexer.read();
+        var index0 = readDecimalNumber(lexer).orElseThrow(() -> new InvalidVCDFormatException("expected index of reference"));
+
+        lexer.skipWhitespaces();
+        switch (lexer.read()) {
             case ':':
                 break;
             case ']':
@@ -185,20 +630,18 @@ public final class VCDParser {
             default:
                 throw new InvalidVCDFormatException("invalid index of reference");
         }
-        var index1 = readDecimalNumber(reader).orElseThrow(() -> new InvalidVCDFormatException("expected 2nd index of reference"));
+        var index1 = readDecimalNumber(lexer).orElseThrow(() -> new InvalidVCDFormatException("expected 2nd index of reference"));
 
-        skipWhitespaces(reader);
-        if (reader.read() != ']')
+        lexer.skipWhitespaces();
+        if (lexer.read() != ']')
             throw new InvalidVCDFormatException("invalid index of reference");
 
         return identifier + '[' + index0 + ':' + index1 + ']';
     }
 
-    private static boolean parseValueChange(PushbackReader reader, int time, ParserInternalData internalData) throws IOException, InvalidVCDFormatException {
-        skipWhitespaces(reader);
-        var c = reader.read();
-        if (c == -1)
-            return false;
+    private static boolean parseValueChange(VCDLexer lexer, long time, ParserInternalData internalData, ValueChangeSink sink) throws IOException, InvalidVCDFormatException {
+        lexer.skipWhitespaces();
+        var c = lexer.peek();
         switch (c) {
             case '0':
             case '1':
@@ -206,13 +649,15 @@ public final class VCDParser {
             case 'X':
             case 'z':
             case 'Z': {
-                var idCode = readWord(reader).orElseThrow(() -> new InvalidVCDFormatException("expected identifier code of value change"));
-                //System.out.printf("Scalar change: %s to %c\n", idCode, c);
-                var store = internalData.storeMap.get(idCode);
-                if (store == null) {
-                    System.out.printf("Warning: ignoring unknown identifier code %s\n", idCode);
-                } else {
-                    store.addChange(time, Character.toString(c));
+                lexer.read();
+                var idCodeLength = lexer.readWordBytes();
+                if (idCodeLength == 0)
+                    throw new InvalidVCDFormatException("expected identifier code of value change");
+                var storeIndex = internalData.idCodes.lookup(lexer.wordBytes(), idCodeLength);
+                if (storeIndex < 0) {
+                    System.out.printf("Warning: ignoring unknown identifier code %s\n", lexer.wordToString());
+                } else if (sink.accepts(storeIndex)) {
+                    sink.addChange(storeIndex, time, SCALAR_VALUES[c]);
                 }
                 return true;
             }
@@ -220,131 +665,244 @@ public final class VCDParser {
             case 'B':
             case 'r':
             case 'R': {
-                var numStr = readWord(reader).orElseThrow(() -> new InvalidVCDFormatException("expected number of value change"));
-                var idCode = readWord(reader).orElseThrow(() -> new InvalidVCDFormatException("expected identifier code of value change"));
-                //System.out.printf("Vector change: %s to %s\n", idCode, numStr);
-                var store = internalData.storeMap.get(idCode);
-                if (store == null) {
-                    System.out.printf("Warning: ignoring unknown identifier code %s\n", idCode);
-                } else {
-                    store.addChange(time, numStr);
+                lexer.read();
+                if (lexer.readWordBytes() == 0)
+                    throw new InvalidVCDFormatException("expected number of value change");
+                lexer.keepWord();
+                var idCodeLength = lexer.readWordBytes();
+                if (idCodeLength == 0)
+                    throw new InvalidVCDFormatException("expected identifier code of value change");
+                var storeIndex = internalData.idCodes.lookup(lexer.wordBytes(), idCodeLength);
+                if (storeIndex < 0) {
+                    System.out.printf("Warning: ignoring unknown identifier code %s\n", lexer.wordToString());
+                } else if (sink.accepts(storeIndex)) {
+                    sink.addChange(storeIndex, time, lexer.keptWordToString());
                 }
                 return true;
             }
             default:
-                reader.unread(c);
                 return false;
         }
     }
 
-    private static void skipWhitespaces(PushbackReader reader) throws IOException {
+    private static long parseSimulationCommands(ParserInternalData internalData, VCDLexer lexer, ValueChangeSink sink)
+            throws IOException, InvalidVCDFormatException {
+        long time = 0;
         while (true) {
-            var c = reader.read();
-            if (!Character.isWhitespace(c)) {
-                if (c != -1) reader.unread(c);
-                break;
+            if (parseValueChange(lexer, time, internalData, sink))
+                continue;
+            switch (lexer.peek()) {
+                case VCDLexer.EOF:
+                    return time;
+                case '#':
+                    lexer.read();
+                    var newTime = lexer.readDecimalNumber();
+                    if (newTime < 0)
+                        throw new InvalidVCDFormatException("expected time after #");
+                    if (newTime < time)
+                        throw new InvalidVCDFormatException("time goes backwards at #" + newTime);
+                    time = newTime;
+                    sink.advanceTime(time, lexer.position());
+                    break;
+                case '$':
+                    var kwOpt = parseSimulationKeyword(lexer);
+                    if (kwOpt.isEmpty())
+                        throw new InvalidVCDFormatException("unknown simulation command " + lexer.wordToString());
+                    switch (kwOpt.get()) {
+                        case COMMENT:
+                            consumeUntilEnd(lexer);
+                            break;
+                        case DUMPALL:
+                        case DUMPOFF:
+                        case DUMPON:
+                        case DUMPVARS:
+                            while (true) {
+                                if (!parseValueChange(lexer, time, internalData, sink)) {
+                                    break;
+                                }
+                            }
+                            consumeEnd(lexer);
+                            break;
+                    }
+                    break;
+                default:
+                    var unknown = lexer.readWord();
+                    System.out.printf("Warning: ignoring unknown token %s\n", unknown);
+                    break;
             }
         }
     }
 
-    private static int parseSimulationCommands(ParserInternalData internalData, PushbackReader reader)
+    // Each range between boundaries must begin with a "#time" line. Chunks are parsed ahead on the pool
+    // and appended to the stores in file order as each finishes, so that the parsed prefix is shown and
+    // progress reported while the rest is read, as with the sequential parser.
+    private static long parseSimulationCommandsInParallel(Path path, long[] boundaries, ParserInternalData internalData,
+                                                         ForkJoinPool pool, ParseProgressListener listener, boolean[] wanted)
             throws IOException, InvalidVCDFormatException {
-        int time = 0;
-        while (true) {
-            var kwOpt = parseSimulationKeyword(reader);
-            if (kwOpt.isPresent()) {
-                switch (kwOpt.get()) {
-                    case COMMENT:
-                        consumeUntilEnd(reader);
-                        break;
-                    case DUMPALL:
-                    case DUMPOFF:
-                    case DUMPON:
-                    case DUMPVARS:
-                        while (true) {
-                            if (!parseValueChange(reader, time, internalData)) {
-                                break;
-                            }
+        var stores = internalData.getStores();
+        var timeline = internalData.getTimeline();
+        int chunkCount = boundaries.length - 1;
+        long totalBytes = boundaries[chunkCount];
+
+        // Only a few chunks are parsed ahead, so that stitching does not queue behind the whole file.
+        var parsed = new ArrayList<Future<ChangeLog>>();
+        int window = pool.getParallelism() + 1;
+        long changeCount = 0;
+        long lastTime = 0;
+        try {
+            for (int i = 0; i < chunkCount; i++) {
+                while (parsed.size() < chunkCount && parsed.size() < i + window) {
+                    long chunkStart = boundaries[parsed.size()];
+                    long chunkEnd = boundaries[parsed.size() + 1];
+                    parsed.add(pool.submit(() -> {
+                        try (var source = new MappedFileByteSource(path, chunkStart, chunkEnd)) {
+                            var log = new ChangeLog(listener, wanted);
+                            parseSimulationCommands(internalData, new VCDLexer(source), log);
+                            log.sortByStore(stores.length);
+                            return log;
                         }
-                        consumeEnd(reader);
-                        break;
+                    }));
                 }
-            } else {
-                if (!parseValueChange(reader, time, internalData)) {
-                    int c = reader.read();
-                    if (c == -1) {
-                        break;
-                    } else if (c == '#') {
-                        time = readDecimalNumber(reader).orElseThrow(() -> new InvalidVCDFormatException("expected time after #"));
-                    }
+                var log = getResult(parsed.get(i));
+                parsed.set(i, null);
+                // The stitching tasks below append out of time order, so the times of the chunk must be
+                // known first. When loading on demand, the index has filled the time table already.
+                if (wanted == null)
+                    log.registerTimes(timeline.getTimeTable());
+
+                // Each store is only touched by one stitching task.
+                int taskCount = pool.getParallelism() * CHUNKS_PER_THREAD;
+                int storesPerTask = Math.max(1, (stores.length + taskCount - 1) / taskCount);
+                var stitchTasks = new ArrayList<Callable<Void>>();
+                for (int from = 0; from < stores.length; from += storesPerTask) {
+                    int fromStore = from;
+                    int toStore = Math.min(stores.length, from + storesPerTask);
+                    stitchTasks.add(() -> {
+                        log.replay(stores, fromStore, toStore);
+                        return null;
+                    });
                 }
+                invokeAll(pool, stitchTasks);
+
+                changeCount += log.size;
+                lastTime = log.lastTime;
+                // The next chunk may still add changes at the last time of this one.
+                if (wanted == null && lastTime > 0)
+                    timeline.setEndTime(Math.max(timeline.getEndTime(), lastTime - 1));
+                if (listener != null) {
+                    listener.progressed(boundaries[i + 1], totalBytes, changeCount);
+                    if (listener.isCancelled())
+                        throw new CancellationException();
+                }
+            }
+        } finally {
+            for (var future : parsed) {
+                if (future != null)
+                    future.cancel(true);
             }
         }
-        return time;
+        return lastTime;
     }
 
-    private static String consumeUntilEnd(PushbackReader reader) throws IOException {
-        var sb = new StringBuilder();
-        while (true) {
-            Optional<String> wordOpt = readWord(reader);
-            if (wordOpt.isEmpty()) {
-                break;
-            } else {
-                if (wordOpt.get().equals("$end"))
+    // Splits [simulationStart, end of file) into ranges that each begin with a "#time" line.
+    private static long[] splitSimulationSection(Path path, long simulationStart, int count) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long end = channel.size();
+            long chunkSize = Math.max(MIN_CHUNK_SIZE, (end - simulationStart) / count);
+            var boundaries = new ArrayList<Long>();
+            boundaries.add(simulationStart);
+            long position = simulationStart + chunkSize;
+            while (position < end) {
+                long boundary = findTimeLine(channel, position, end);
+                if (boundary >= end)
                     break;
-                if (sb.length() != 0)
-                    sb.append(' ');
-                sb.append(wordOpt.get());
+                boundaries.add(boundary);
+                position = boundary + chunkSize;
             }
+            boundaries.add(end);
+            return boundaries.stream().mapToLong(Long::longValue).toArray();
         }
-        return sb.toString();
     }
 
-    private static void consumeEnd(PushbackReader reader) throws IOException, InvalidVCDFormatException {
-        Optional<String> wordOpt = readWord(reader);
-        if (!(wordOpt.isPresent() && wordOpt.get().equals("$end"))) {
-            throw new InvalidVCDFormatException("expected $end");
+    private static long findTimeLine(FileChannel channel, long position, long end) throws IOException {
+        var buffer = ByteBuffer.allocate(1 << 16);
+        int prev = 0;
+        for (long p = position - 1; p < end; ) {
+            buffer.clear();
+            int n = channel.read(buffer, p);
+            if (n <= 0)
+                break;
+            for (int i = 0; i < n; i++) {
+                int c = buffer.get(i);
+                if (c == '#' && (prev == '\n' || prev == '\r'))
+                    return p + i;
+                prev = c;
+            }
+            p += n;
         }
+        return end;
     }
 
-    private static Optional<String> readWord(PushbackReader reader) throws IOException {
-        var sb = new StringBuilder(256);
-        skipWhitespaces(reader);
-        while (true) {
-            int c = reader.read();
-            if (c != -1 && !Character.isWhitespace(c)) {
-                sb.append((char) c);
-            } else {
-                if (c != -1) reader.unread(c);
-                break;
+    private static <T> List<T> invokeAll(ForkJoinPool pool, List<Callable<T>> tasks) throws IOException, InvalidVCDFormatException {
+        var results = new ArrayList<T>();
+        for (var future : pool.invokeAll(tasks))
+            results.add(getResult(future));
+        return results;
+    }
+
+    private static <T> T getResult(Future<T> future) throws IOException, InvalidVCDFormatException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while parsing", e);
+        } catch (ExecutionException e) {
+            // The pool wraps what a task throws in RuntimeExceptions, sometimes twice, so the
+            // checked exception is looked for along the whole chain.
+            for (var cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof IOException)
+                    throw (IOException) cause;
+                if (cause instanceof InvalidVCDFormatException)
+                    throw (InvalidVCDFormatException) cause;
             }
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new RuntimeException(e.getCause());
         }
-        if (sb.length() == 0)
-            return Optional.empty();
-        else
-            return Optional.of(sb.toString());
     }
 
-    private static Optional<Integer> readDecimalNumber(PushbackReader reader) throws IOException {
-        var sb = new StringBuilder(256);
-        skipWhitespaces(reader);
+    private static String consumeUntilEnd(VCDLexer lexer) throws IOException {
+        var sb = new StringBuilder();
         while (true) {
-            int c = reader.read();
-            if (Character.isDigit(c)) {
-                sb.append((char) c);
-            } else {
-                if (c != -1) reader.unread(c);
+            if (lexer.readWordBytes() == 0 || lexer.wordEquals("$end"))
                 break;
-            }
+            if (sb.length() != 0)
+                sb.append(' ');
+            sb.append(lexer.wordToString());
+        }
+        return sb.toString();
+    }
+
+    private static void consumeEnd(VCDLexer lexer) throws IOException, InvalidVCDFormatException {
+        lexer.readWordBytes();
+        if (!lexer.wordEquals("$end")) {
+            throw new InvalidVCDFormatException("expected $end");
         }
-        if (sb.length() == 0)
+    }
+
+    private static Optional<String> readWord(VCDLexer lexer) throws IOException {
+        return Optional.ofNullable(lexer.readWord());
+    }
+
+    private static Optional<Integer> readDecimalNumber(VCDLexer lexer) throws IOException, InvalidVCDFormatException {
+        var n = lexer.readDecimalNumber();
+        if (n < 0 || n > Integer.MAX_VALUE)
             return Optional.empty();
-        else
-            return Optional.of(Integer.parseInt(sb.toString()));
+        return Optional.of((int) n);
     }
 
-    private static Optional<DeclarationKeyword> parseDeclarationKeyword(PushbackReader reader) throws IOException {
-        var wordOpt = readWord(reader);
+    private static Optional<DeclarationKeyword> parseDeclarationKeyword(VCDLexer lexer) throws IOException {
+        var wordOpt = readWord(lexer);
         if (wordOpt.isEmpty()) {
             return Optional.empty();
         } else {
@@ -366,16 +924,13 @@ public final class VCDParser {
                 case "$version":
                     return Optional.of(DeclarationKeyword.VERSION);
                 default:
-                    reader.unread(' ');
-                    reader.unread(wordOpt.get().toCharArray());
-                    reader.unread(' ');
                     return Optional.empty();
             }
         }
     }
 
-    private static Optional<SimulationKeyword> parseSimulationKeyword(PushbackReader reader) throws IOException {
-        var wordOpt = readWord(reader);
+    private static Optional<SimulationKeyword> parseSimulationKeyword(VCDLexer lexer) throws IOException {
+        var wordOpt = readWord(lexer);
         if (wordOpt.isEmpty()) {
             return Optional.empty();
         } else {
@@ -391,16 +946,13 @@ public final class VCDParser {
                 case "$dumpvars":
                     return Optional.of(SimulationKeyword.DUMPVARS);
                 default:
-                    reader.unread(' ');
-                    reader.unread(wordOpt.get().toCharArray());
-                    reader.unread(' ');
                     return Optional.empty();
             }
         }
     }
 
-    private static Optional<ScopeType> parseScopeType(PushbackReader reader) throws IOException {
-        var wordOpt = readWord(reader);
+    private static Optional<ScopeType> parseScopeType(VCDLexer lexer) throws IOException {
+        var wordOpt = readWord(lexer);
         if (wordOpt.isEmpty()) {
             return Optional.empty();
         } else {
@@ -416,16 +968,13 @@ public final class VCDParser {
                 case "task":
                     return Optional.of(ScopeType.TASK);
                 default:
-                    reader.unread(' ');
-                    reader.unread(wordOpt.get().toCharArray());
-                    reader.unread(' ');
                     return Optional.empty();
             }
         }
     }
 
-    private static Optional<Timescale.TimeUnit> parseTimeUnit(PushbackReader reader) throws IOException {
-        var wordOpt = readWord(reader);
+    private static Optional<Timescale.TimeUnit> parseTimeUnit(VCDLexer lexer) throws IOException {
+        var wordOpt = readWord(lexer);
         if (wordOpt.isEmpty()) {
             return Optional.empty();
         } else {
@@ -443,9 +992,6 @@ public final class VCDParser {
                 case "fs":
                     return Optional.of(Timescale.TimeUnit.FS);
                 default:
-                    reader.unread(' ');
-                    reader.unread(wordOpt.get().toCharArray());
-                    reader.unread(' ');
                     return Optional.empty();
             }
         }
@@ -490,8 +1036,8 @@ public final class VCDParser {
         }
     }
 
-    private static Optional<VarType> parseVarType(PushbackReader reader) throws IOException {
-        var wordOpt = readWord(reader);
+    private static Optional<VarType> parseVarType(VCDLexer lexer) throws IOException {
+        var wordOpt = readWord(lexer);
         if (wordOpt.isEmpty()) {
             return Optional.empty();
         } else {
@@ -533,9 +1079,6 @@ public final class VCDParser {
                 case "wor":
                     return Optional.of(VarType.WOR);
                 default:
-                    reader.unread(' ');
-                    reader.unread(wordOpt.get().toCharArray());
-                    reader.unread(' ');
                     return Optional.empty();
             }
         }
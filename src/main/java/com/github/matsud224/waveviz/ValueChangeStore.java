@@ -1,30 +1,101 @@
 package com.github.matsud224.waveviz;
 
-import java.util.ArrayList;
+// Value changes of one identifier code, read by index from a backend. Appended to by the parser
+// thread while the UI reads from it.
+public abstract class ValueChangeStore {
+    private final Timeline timeline;
 
-public class ValueChangeStore {
-    private final ArrayList<Integer> timeArray;
-    private final ArrayList<String> valueArray;
+    // Set when the dump is loaded on demand. The changes are filled in by the loader after the first read.
+    private Loader loader;
+    private int loaderIndex;
+    private volatile boolean loaded = true;
+    private boolean requested = false;
+    private SummaryPyramid summaryPyramid;
 
-    public ValueChangeStore() {
-        timeArray = new ArrayList<>();
-        valueArray = new ArrayList<>();
+    interface Loader {
+        void request(int index);
+
+        // Stops loading and releases what the loader reads from. Later requests load nothing.
+        void close();
+    }
+
+    protected ValueChangeStore(Timeline timeline) {
+        this.timeline = timeline;
+    }
+
+    // Must not be called on a read-only store.
+    public abstract void addChange(long time, String numStr);
+
+    // Stores read from a sidecar cache cannot be appended to.
+    public boolean isReadOnly() {
+        return false;
+    }
+
+    // Whether a change at the time replaces the last one. Of the changes dumped at one time only the
+    // last is kept, so that every backend holds the value the time ends with.
+    protected boolean replacesLastChange(long time) {
+        int size = size();
+        return size > 0 && timeAt(size - 1) == time;
+    }
+
+    // Must be called by a backend after it drops its last change.
+    protected void lastChangeDropped() {
+        if (summaryPyramid != null)
+            summaryPyramid.truncate(this, size());
+    }
+
+    // Number of stored changes.
+    protected abstract int size();
+
+    protected abstract long timeAt(int index);
+
+    protected abstract String valueAt(int index);
+
+    // Backends with a more compact representation than strings may hand it to the span instead.
+    protected void fillSpan(int index, ValueSpan span, long startTime, long endTime) {
+        span.set(valueAt(index), startTime, endTime);
+    }
+
+    void deferLoading(Loader loader, int loaderIndex) {
+        this.loader = loader;
+        this.loaderIndex = loaderIndex;
+        this.loaded = false;
+    }
+
+    Loader getLoader() {
+        return loader;
+    }
+
+    synchronized void markLoaded() {
+        loaded = true;
+        notifyAll();
     }
 
-    public void addChange(int time, String numStr) {
-        String lastValue = !valueArray.isEmpty() ? valueArray.get(valueArray.size() - 1) : "";
-        if (!lastValue.equals(numStr)) {
-            timeArray.add(time);
-            valueArray.add(numStr);
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    private synchronized void requestLoading() {
+        if (!loaded && !requested) {
+            requested = true;
+            loader.request(loaderIndex);
         }
     }
 
-    private int searchStartingTime(int time) {
+    // Blocks until the changes of a store loaded on demand are available.
+    public synchronized void awaitLoaded() throws InterruptedException {
+        requestLoading();
+        while (!loaded)
+            wait();
+    }
+
+    // Index of the last change at or before the given time, or 0 if there is none.
+    protected int searchStartingTime(long time) {
         int low = 0;
-        int high = timeArray.size() - 1;
+        int high = size() - 1;
         while (low <= high) {
-            int mid = (low + high) / 2;
-            int midValue = timeArray.get(mid);
+            int mid = (low + high) >>> 1;
+            long midValue = timeAt(mid);
             if (midValue > time)
                 high = mid - 1;
             else if (midValue < time)
@@ -35,19 +106,148 @@ public class ValueChangeStore {
         return Math.max(high, 0);
     }
 
-    public TimeSpan getValue(int time) {
-        int startingPos = searchStartingTime(time);
-        if (startingPos == timeArray.size() - 1)
-            return new TimeSpan(timeArray.get(startingPos), timeArray.get(startingPos), valueArray.get(startingPos));
+    public ValueWithSpan<String> getValue(long time) {
+        var span = new ValueSpan();
+        getValue(time, span);
+        return new ValueWithSpan<>(span.getValue(), new TimeSpan(span.getStartTime(), span.getEndTime()));
+    }
+
+    // Fills in the value at the given time and the span it is held for, without allocating.
+    public void getValue(long time, ValueSpan span) {
+        seekIndex(time, span);
+    }
+
+    // Like getValue, and returns the index of the change held at the time, or -1 if there is none yet.
+    private synchronized int seekIndex(long time, ValueSpan span) {
+        if (!loaded)
+            requestLoading();
+        int size = size();
+        if (!loaded || size == 0) {
+            span.set(null, 0, timeline.getEndTime());
+            return -1;
+        }
+        int index = searchStartingTime(time);
+        fillSpanAt(index, span, size);
+        return index;
+    }
+
+    // Fills in the change at the index. Returns false, leaving the span untouched, if it does not exist (yet).
+    private synchronized boolean fillIndex(int index, ValueSpan span) {
+        int size = size();
+        if (!loaded || index < 0 || index >= size)
+            return false;
+        fillSpanAt(index, span, size);
+        return true;
+    }
+
+    public ChangeCursor newCursor() {
+        return new Cursor();
+    }
+
+    // Steps by index, so that walking consecutive changes does not search the store again.
+    private final class Cursor implements ChangeCursor {
+        private final ValueSpan span = new ValueSpan();
+        private int index = -1;
+
+        @Override
+        public void seek(long time) {
+            index = seekIndex(time, span);
+        }
+
+        @Override
+        public boolean next() {
+            if (index < 0 || !fillIndex(index + 1, span))
+                return false;
+            index++;
+            return true;
+        }
+
+        @Override
+        public boolean prev() {
+            if (index <= 0 || !fillIndex(index - 1, span))
+                return false;
+            index--;
+            return true;
+        }
+
+        @Override
+        public ValueSpan getSpan() {
+            return span;
+        }
+    }
+
+    private void fillSpanAt(int index, ValueSpan span, int size) {
+        long startTime = timeAt(index);
+        if (index == size - 1)
+            fillSpan(index, span, startTime, Math.max(startTime, timeline.getEndTime()));
         else
-            return new TimeSpan(timeArray.get(startingPos), timeArray.get(startingPos + 1) - 1, valueArray.get(startingPos));
+            fillSpan(index, span, startTime, timeAt(index + 1) - 1);
+    }
+
+    // Whether the value at the index has an x or z bit. Backends that know without building a string may override.
+    protected boolean isUnknownAt(int index) {
+        var value = valueAt(index);
+        for (int i = 0; value != null && i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == 'x' || c == 'X' || c == 'z' || c == 'Z')
+                return true;
+        }
+        return false;
+    }
+
+    // Fills in the number of changes within the time range, the values held at its ends and whether
+    // an x or z value is held within it. Returns false if nothing is held there.
+    public synchronized boolean summarize(long startTime, long endTime, ChangeSummary summary) {
+        if (!loaded)
+            requestLoading();
+        int size = size();
+        if (!loaded || size == 0 || timeAt(0) > endTime)
+            return false;
+        if (summaryPyramid == null)
+            summaryPyramid = new SummaryPyramid();
+        summaryPyramid.extend(this, size);
+        int first = searchStartingTime(startTime);
+        int last = searchStartingTime(endTime);
+        int firstInside = timeAt(first) < startTime ? first + 1 : first;
+        summary.set(last - firstInside + 1, summaryPyramid.anyUnknown(this, first, last));
+        fillSpanAt(first, summary.getFirst(), size);
+        fillSpanAt(last, summary.getLast(), size);
+        return true;
+    }
+
+    // Writes the smallest and largest number a real variable takes within the time range to range[0]
+    // and range[1]. Returns false if it has none there.
+    public synchronized boolean getRealRange(long startTime, long endTime, double[] range) {
+        if (!loaded)
+            requestLoading();
+        if (!loaded || size() == 0 || timeAt(0) > endTime)
+            return false;
+        return realRange(searchStartingTime(startTime), searchStartingTime(endTime), range);
+    }
+
+    // Extremes of the values at indices from..to. Backends that keep reals as numbers may avoid parsing every value.
+    protected boolean realRange(int from, int to, double[] range) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = from; i <= to; i++) {
+            double value = WavevizUtilities.parseReal(valueAt(i));
+            if (value < min)
+                min = value;
+            if (value > max)
+                max = value;
+        }
+        range[0] = min;
+        range[1] = max;
+        return min <= max;
     }
 
-    public int getStartTime() {
-        return timeArray.get(0);
+    public synchronized long getStartTime() {
+        if (!loaded)
+            requestLoading();
+        return !loaded || size() == 0 ? 0 : timeAt(0);
     }
 
-    public int getEndTime() {
-        return timeArray.get(timeArray.size() - 1);
+    public long getEndTime() {
+        return timeline.getEndTime();
     }
 }
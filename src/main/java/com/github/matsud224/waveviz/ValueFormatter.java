@@ -0,0 +1,12 @@
+package com.github.matsud224.waveviz;
+
+// Turns the binary string of a value into the text shown for a display format. Registered with
+// Waveviz.registerFormatter, and called from the threads that paint waveforms.
+public interface ValueFormatter {
+    String format(String value);
+
+    // Formatters that can read a packed vector directly may override this to skip building its binary string.
+    default String format(ValueSpan span) {
+        return format(span.getValue());
+    }
+}
@@ -0,0 +1,87 @@
+package com.github.matsud224.waveviz;
+
+import java.nio.ByteBuffer;
+
+// Mutable counterpart of ValueWithSpan, filled in by TimeSeries.getValue(long, ValueSpan) so that
+// painting a waveform does not allocate per value change. Packed vector values are only turned
+// into a string when getValue() is called, and so are real numbers.
+public class ValueSpan {
+    private String value;
+    private final PackedValue packedValue = new PackedValue();
+    private boolean packed = false;
+    private double realValue;
+    private boolean real = false;
+    private long startTime;
+    private long endTime;
+
+    public void set(String value, long startTime, long endTime) {
+        this.value = value;
+        this.packed = false;
+        this.real = false;
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+
+    void setPacked(long[] arena, int offset, long startTime, long endTime) {
+        this.value = null;
+        this.packedValue.set(arena, offset);
+        this.packed = true;
+        this.real = false;
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+
+    void setPacked(ByteBuffer buffer, int offset, long startTime, long endTime) {
+        this.value = null;
+        this.packedValue.set(buffer, offset);
+        this.packed = true;
+        this.real = false;
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+
+    void setReal(double realValue, long startTime, long endTime) {
+        this.value = null;
+        this.packed = false;
+        this.realValue = realValue;
+        this.real = true;
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+
+    public boolean hasValue() {
+        return packed || real || value != null;
+    }
+
+    public String getValue() {
+        if (value == null) {
+            if (packed)
+                value = packedValue.toString();
+            else if (real)
+                value = WavevizUtilities.formatReal(realValue);
+        }
+        return value;
+    }
+
+    // Values of real variables that a backend keeps as text are parsed here.
+    public double getRealValue() {
+        return real ? realValue : WavevizUtilities.parseReal(getValue());
+    }
+
+    public boolean isPacked() {
+        return packed;
+    }
+
+    // Only valid while isPacked() is true and until the next set.
+    public PackedValue getPackedValue() {
+        return packedValue;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+}
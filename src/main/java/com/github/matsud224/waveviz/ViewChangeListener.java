@@ -0,0 +1,6 @@
+package com.github.matsud224.waveviz;
+
+// Told about zooming and scrolling. x = 0 of the view lies viewX pixels after the start of the model.
+public interface ViewChangeListener {
+    void viewChanged(long pixelsPerUnitTime, long viewX);
+}
@@ -1,10 +1,5 @@
 package com.github.matsud224.waveviz;
 
-import org.jruby.Ruby;
-import org.jruby.RubyProc;
-import org.jruby.RubyString;
-import org.jruby.runtime.builtin.IRubyObject;
-
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
@@ -21,6 +16,8 @@ public class WaveInfoPanel extends JPanel implements Scrollable, MouseMotionList
     private Optional<Integer> dragTargetIndex = Optional.empty();
     private int dragToIndex;
     private JMenu displayFormatMenu;
+    // Reused for every name painted, since painting only happens on the event dispatch thread.
+    private final ValueSpan paintedSpan = new ValueSpan();
 
     public WaveInfoPanel(WaveViewModel model, Waveviz wavevizObject) {
         this.wavevizObject = wavevizObject;
@@ -73,13 +70,11 @@ public class WaveInfoPanel extends JPanel implements Scrollable, MouseMotionList
 
             String waveName = wf.getName();
 
-            String valueStr = timeSeries.getValue(model.getCursor().getTime()).getValue();
+            var span = paintedSpan;
+            timeSeries.getValue(model.getCursor().getTime(), span);
 
-            if (valueStr != null) {
-                RubyProc formatterProc = wavevizObject.getFormatters().get(wf.getDisplayFormat());
-                Ruby runtime = formatterProc.getRuntime();
-                IRubyObject[] args = new IRubyObject[]{RubyString.newString(runtime, valueStr)};
-                String formattedStr = formatterProc.call(runtime.getCurrentContext(), args).asJavaString();
+            if (span.hasValue()) {
+                String formattedStr = wavevizObject.getFormatters().get(wf.getDisplayFormat()).format(span);
 
                 String str = String.format("%s = %s", waveName, formattedStr);
                 g2.drawString(str, 10, nowY);
@@ -0,0 +1,134 @@
+package com.github.matsud224.waveviz;
+
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+
+// Least recently used cache of painted pieces of waveform rows, bounded by the bytes of their
+// images. A tile is one row over TILE_WIDTH pixels at one zoom level and display format;
+// tile n starts n * TILE_WIDTH pixels after the start of the model.
+final class WaveTileCache {
+    static final int TILE_WIDTH = 256;
+    private static final long DEFAULT_CAPACITY = 64L << 20;
+
+    static final class Key {
+        final Waveform waveform;
+        final long pixelsPerUnitTime;
+        final String displayFormat;
+        final long tileIndex;
+
+        Key(Waveform waveform, long pixelsPerUnitTime, String displayFormat, long tileIndex) {
+            this.waveform = waveform;
+            this.pixelsPerUnitTime = pixelsPerUnitTime;
+            this.displayFormat = displayFormat;
+            this.tileIndex = tileIndex;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+            var other = (Key) o;
+            return waveform == other.waveform && pixelsPerUnitTime == other.pixelsPerUnitTime
+                    && tileIndex == other.tileIndex && displayFormat.equals(other.displayFormat);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(waveform), pixelsPerUnitTime, displayFormat, tileIndex);
+        }
+    }
+
+    static final class Tile {
+        final BufferedImage image;
+        // What the tile was painted from: whether the signal had been loaded, the time the dump had
+        // been read up to, and the times the tile shows.
+        private final boolean loaded;
+        private final long dataEndTime;
+        private final long startTime;
+        private final long endTime;
+
+        Tile(BufferedImage image, boolean loaded, long dataEndTime, long startTime, long endTime) {
+            this.image = image;
+            this.loaded = loaded;
+            this.dataEndTime = dataEndTime;
+            this.startTime = startTime;
+            this.endTime = endTime;
+        }
+
+        // Whether more of the signal has been read since the tile was painted in a way it shows: the
+        // signal has been loaded, or the dump has been read past the time the tile was painted up to.
+        // Tiles wholly within what had been read never change, but a trace is scaled to the range of
+        // the whole signal.
+        boolean isStale(TimeSeries signal) {
+            if (signal.isLoaded() != loaded)
+                return true;
+            long signalEndTime = signal.getEndTime();
+            if (signalEndTime <= dataEndTime)
+                return false;
+            return WavevizUtilities.isRealType(signal.getType())
+                    || (endTime > dataEndTime && startTime <= signalEndTime);
+        }
+
+        long estimatedSize() {
+            return 64 + 4L * image.getWidth() * image.getHeight();
+        }
+    }
+
+    private final long capacity;
+    private long size = 0;
+    private final LinkedHashMap<Key, Tile> tiles = new LinkedHashMap<>(256, 0.75f, true);
+
+    WaveTileCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    WaveTileCache(long capacity) {
+        this.capacity = capacity;
+    }
+
+    Tile get(Key key) {
+        return tiles.get(key);
+    }
+
+    void put(Key key, Tile tile) {
+        var previous = tiles.put(key, tile);
+        if (previous != null)
+            size -= previous.estimatedSize();
+        size += tile.estimatedSize();
+        var iterator = tiles.values().iterator();
+        while (size > capacity && tiles.size() > 1) {
+            size -= iterator.next().estimatedSize();
+            iterator.remove();
+        }
+    }
+
+    void clear() {
+        tiles.clear();
+        size = 0;
+    }
+
+    void removeWaveform(Waveform waveform) {
+        removeIf(waveform, null, false);
+    }
+
+    void removeDisplayFormat(String displayFormat) {
+        removeIf(null, displayFormat, false);
+    }
+
+    void removeStale() {
+        removeIf(null, null, true);
+    }
+
+    private void removeIf(Waveform waveform, String displayFormat, boolean stale) {
+        var iterator = tiles.entrySet().iterator();
+        while (iterator.hasNext()) {
+            var entry = iterator.next();
+            var key = entry.getKey();
+            if (key.waveform == waveform || key.displayFormat.equals(displayFormat) || (stale && entry.getValue().isStale(key.waveform.getTimeSeries()))) {
+                size -= entry.getValue().estimatedSize();
+                iterator.remove();
+            }
+        }
+    }
+}
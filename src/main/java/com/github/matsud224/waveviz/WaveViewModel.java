@@ -5,7 +5,6 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.Optional;
 
 public class WaveViewModel implements PropertyChangeListener {
@@ -23,6 +22,7 @@ public class WaveViewModel implements PropertyChangeListener {
 
     public static final String WAVEFORM_PROPERTY = "WAVEFORM_PROPERTY";
     public static final String MARKER_PROPERTY = "MARKER_PROPERTY";
+    public static final String WAVEFORM_DATA_PROPERTY = "WAVEFORM_DATA_PROPERTY";
 
     public WaveViewModel() {
         this.waveforms = new ArrayList<>();
@@ -65,9 +65,9 @@ public class WaveViewModel implements PropertyChangeListener {
     }
 
     public void removeWaveform(int index) {
-        this.waveforms.get(index).removePropertyChangeListener(this);
-        this.waveforms.remove(index);
-        this.pcs.firePropertyChange(WAVEFORM_PROPERTY, null, null);
+        var wf = this.waveforms.remove(index);
+        wf.removePropertyChangeListener(this);
+        this.pcs.firePropertyChange(WAVEFORM_PROPERTY, wf, null);
     }
 
     public void removeAllWaveforms() {
@@ -87,18 +87,22 @@ public class WaveViewModel implements PropertyChangeListener {
     public void reorderWaveform(int fromIndex, int toIndex) {
         if (fromIndex < 0 || fromIndex >= getWaveformCount())
             return;
-        var target = getWaveform(fromIndex);
-        removeWaveform(fromIndex);
-        addWaveform(toIndex, target);
+        var target = this.waveforms.remove(fromIndex);
+        this.waveforms.add(toIndex, target);
         this.pcs.firePropertyChange(WAVEFORM_PROPERTY, null, null);
     }
 
-    public int getStartTime() {
-        return waveforms.stream().map(wf -> wf.getTimeSeries().getStartTime()).min(Comparator.naturalOrder()).orElse(0);
+    // Signals were appended to while a dump is being loaded.
+    public void notifyWaveformsUpdated() {
+        this.pcs.firePropertyChange(WAVEFORM_DATA_PROPERTY, null, null);
+    }
+
+    public long getStartTime() {
+        return waveforms.stream().mapToLong(wf -> wf.getTimeSeries().getStartTime()).min().orElse(0);
     }
 
-    public int getEndTime() {
-        return waveforms.stream().map(wf -> wf.getTimeSeries().getEndTime()).max(Comparator.naturalOrder()).orElse(0);
+    public long getEndTime() {
+        return waveforms.stream().mapToLong(wf -> wf.getTimeSeries().getEndTime()).max().orElse(0);
     }
 
     public ArrayList<Marker> getMarkers() {
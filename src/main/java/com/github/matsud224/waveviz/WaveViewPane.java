@@ -26,6 +26,12 @@ public class WaveViewPane extends JPanel implements PropertyChangeListener {
         waveScrollPane = new JScrollPane(waveformPanel);
         waveScrollPane.getViewport().setBackground(wavevizObject.getWaveBackgroundColor());
         waveScrollPane.getViewport().setScrollMode(JViewport.SIMPLE_SCROLL_MODE);
+        // The panel is as wide as the view and scrolls sideways itself, so that any zoom level fits.
+        waveScrollPane.setHorizontalScrollBarPolicy(ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
+        waveScrollPane.addMouseWheelListener(e -> {
+            if (e.isShiftDown() || !waveScrollPane.getVerticalScrollBar().isVisible())
+                waveformPanel.scrollHorizontally(e.getUnitsToScroll());
+        });
         waveScrollPane.addMouseListener(new MouseListener() {
             @Override
             public void mouseClicked(MouseEvent mouseEvent) {
@@ -101,12 +107,16 @@ public class WaveViewPane extends JPanel implements PropertyChangeListener {
             waveScrollPane.repaint();
         });
 
-        var waveViewSplitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, waveInfoScrollPane, waveScrollPane);
+        var wavePane = new JPanel(new BorderLayout());
+        wavePane.add(waveScrollPane, BorderLayout.CENTER);
+        wavePane.add(waveformPanel.getHorizontalScrollBar(), BorderLayout.SOUTH);
+
+        var waveViewSplitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, waveInfoScrollPane, wavePane);
         waveViewSplitPane.setDividerLocation(200);
         waveViewSplitPane.setOneTouchExpandable(true);
         add(waveViewSplitPane, BorderLayout.CENTER);
 
-        waveformPanel.addScaleChangeListener(timeBar);
+        waveformPanel.addViewChangeListener(timeBar);
 
         setModel(model);
     }
@@ -138,7 +148,7 @@ public class WaveViewPane extends JPanel implements PropertyChangeListener {
         waveformPanel.zoomOut();
     }
 
-    public void scrollToTime(int t) {
+    public void scrollToTime(long t) {
         waveformPanel.scrollToTime(t);
     }
 
@@ -150,6 +160,10 @@ public class WaveViewPane extends JPanel implements PropertyChangeListener {
         scrollToTime(model.getCursor().getTime());
     }
 
+    public void scrollToEnd() {
+        waveformPanel.scrollToEnd();
+    }
+
     public static void createDisplayFormatMenu(Waveviz wavevizObject, JMenu menu, ActionListener listener, String selectedFormat) {
         var displayFormatButtonGroup = new ButtonGroup();
         for (var name : wavevizObject.getFormatters().keySet()) {
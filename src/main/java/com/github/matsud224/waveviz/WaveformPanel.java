@@ -1,34 +1,63 @@
 package com.github.matsud224.waveviz;
 
-import org.jruby.Ruby;
-import org.jruby.RubyProc;
-import org.jruby.RubyString;
-import org.jruby.runtime.builtin.IRubyObject;
-
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferedImage;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
-import java.util.Optional;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class WaveformPanel extends JPanel implements Scrollable, MouseMotionListener, MouseListener, ActionListener, PropertyChangeListener {
     private final int ZOOM_POWER = 10;
+    // Leaves room to add a view's width to any pixel offset.
+    private static final long MAX_VIRTUAL_WIDTH = Long.MAX_VALUE / 4;
+    private static final ExecutorService tilePainters = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+        var thread = new Thread(runnable, "Tile painter");
+        thread.setDaemon(true);
+        return thread;
+    });
     private final Waveviz wavevizObject;
 
     private WaveViewModel model;
-    private int pixelsPerUnitTime = ZOOM_POWER; // reciprocal if negative
-    private final ArrayList<ScaleChangeListener> scaleChangeListeners = new ArrayList<>();
+    private long pixelsPerUnitTime = ZOOM_POWER; // reciprocal if negative
+    private final ArrayList<ViewChangeListener> viewChangeListeners = new ArrayList<>();
+    // The panel is only as wide as the view, and x = 0 lies viewX pixels after the start of the
+    // model. The scroll bar maps its int range onto viewX, scrollUnit pixels to a step.
+    private long viewX = 0;
+    private long scrollUnit = 1;
+    private final JScrollBar horizontalScrollBar = new JScrollBar(JScrollBar.HORIZONTAL);
+    private boolean updatingScrollBar = false;
     private JPopupMenu popupMenu;
     private Point popupPosition;
+    // Tiles are painted by the workers, but the cache and the jobs are only touched on the event dispatch thread.
+    private final WaveTileCache tileCache = new WaveTileCache();
+    private final HashMap<WaveTileCache.Key, TileJob> pendingTiles = new HashMap<>();
+    // The tiles are only valid for the time at x = 0 and the device scale they were painted for.
+    private long tileOriginTime;
+    private double tileScale;
     private JMenu displayFormatMenu;
 
     public WaveformPanel(WaveViewModel model, Waveviz wavevizObject) {
         this.wavevizObject = wavevizObject;
+        horizontalScrollBar.getModel().addChangeListener(e -> {
+            if (!updatingScrollBar)
+                scrollBarMoved();
+        });
         setModel(model);
         addMouseListener(this);
         addMouseMotionListener(this);
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                setViewX(viewX);
+            }
+        });
 
         // Create Popup Menu
         popupMenu = new JPopupMenu();
@@ -59,50 +88,35 @@ public class WaveformPanel extends JPanel implements Scrollable, MouseMotionList
         }
     }
 
-    private int timeFromXCoordinate(int x) {
-        int t;
-        if (pixelsPerUnitTime > 0) {
-            t = x / pixelsPerUnitTime;
-        } else {
-            t = WavevizUtilities.safeMultiply(x, -pixelsPerUnitTime).orElse(Integer.MAX_VALUE);
-        }
-        return t + model.getStartTime();
+    private long timeFromXCoordinate(int x) {
+        return WavevizUtilities.timeOfXCoordinate(x, model.getStartTime(), viewX, pixelsPerUnitTime);
     }
 
-    private int timeFromXCoordinateUsingRound(int x) {
-        int t;
-        if (pixelsPerUnitTime > 0) {
-            t = Math.round((float) x / pixelsPerUnitTime);
-        } else {
-            t = WavevizUtilities.safeMultiply(x, -pixelsPerUnitTime).orElse(Integer.MAX_VALUE);
-        }
-        return t + model.getStartTime();
+    private long timeFromXCoordinateUsingRound(int x) {
+        if (pixelsPerUnitTime > 0)
+            return Math.floorDiv(2 * (viewX + x) + pixelsPerUnitTime, 2L * pixelsPerUnitTime) + model.getStartTime();
+        return timeFromXCoordinate(x);
     }
 
-    private int xCoordinateFromTime(int t) {
-        t = t - model.getStartTime();
-        if (pixelsPerUnitTime > 0) {
-            return WavevizUtilities.safeMultiply(t, pixelsPerUnitTime).orElse(Integer.MAX_VALUE);
-        } else {
-            return t / (-pixelsPerUnitTime);
-        }
+    private int xCoordinateFromTime(long t) {
+        return WavevizUtilities.xCoordinateOfTime(t, model.getStartTime(), viewX, pixelsPerUnitTime);
     }
 
-    private int pixelsOfTimeSpan(int t) {
-        if (pixelsPerUnitTime > 0) {
-            return WavevizUtilities.safeMultiply(t, pixelsPerUnitTime).orElse(Integer.MAX_VALUE);
-        } else {
-            return t / (-pixelsPerUnitTime);
-        }
+    private int xCoordinateOfTile(long tileIndex) {
+        return WavevizUtilities.clampToInt(tileIndex * WaveTileCache.TILE_WIDTH - viewX);
     }
 
-    private Optional<Integer> getRequiredWidth() {
-        int span = model.getEndTime() - model.getStartTime();
-        if (pixelsPerUnitTime > 0) {
-            return WavevizUtilities.safeMultiply(span, pixelsPerUnitTime);
-        } else {
-            return Optional.of(span / -pixelsPerUnitTime);
-        }
+    private boolean fitsVirtualWidth(long pixelsPerUnitTime) {
+        return WavevizUtilities.pixelsOfTimeSpan(model.getEndTime() - model.getStartTime(), pixelsPerUnitTime) < MAX_VIRTUAL_WIDTH;
+    }
+
+    // Width of the whole model in pixels.
+    private long getVirtualWidth() {
+        return Math.min(WavevizUtilities.pixelsOfTimeSpan(model.getEndTime() - model.getStartTime(), pixelsPerUnitTime), MAX_VIRTUAL_WIDTH);
+    }
+
+    private long getMaxViewX() {
+        return Math.max(0, getVirtualWidth() - getWidth());
     }
 
     private void paintMarkers(Graphics2D g2) {
@@ -116,86 +130,152 @@ public class WaveformPanel extends JPanel implements Scrollable, MouseMotionList
         }
     }
 
+    // Rows are composited from cached tiles, so that scrolling, moving the cursor or changing the
+    // focus only paints the tiles that have not been painted before. Those are painted in parallel
+    // off the event dispatch thread and show a placeholder until they are ready.
     private void paintWaves(Graphics2D g2) {
         var clipBounds = g2.getClipBounds();
-        int startIndex = clipBounds.y / wavevizObject.getWaveRowHeight();
-        for (int i = startIndex, y = startIndex * wavevizObject.getWaveRowHeight();
+        double scale = g2.getTransform().getScaleX();
+        long originTime = model.getStartTime();
+        if (originTime != tileOriginTime || scale != tileScale) {
+            tileCache.clear();
+            cancelTiles();
+            tileOriginTime = originTime;
+            tileScale = scale;
+        }
+        cancelInvisibleTiles();
+        long maxTime = model.getEndTime();
+        int rowHeight = wavevizObject.getWaveRowHeight();
+        int startIndex = clipBounds.y / rowHeight;
+        long firstTile = Math.max(viewX + clipBounds.x, 0) / WaveTileCache.TILE_WIDTH;
+        for (int i = startIndex, y = startIndex * rowHeight;
              i < model.getWaveformCount() && y < clipBounds.y + clipBounds.height;
-             i++, y += wavevizObject.getWaveRowHeight()) {
-
-            int upperY = y + wavevizObject.getWaveYPadding();
-            int lowerY = y + wavevizObject.getWaveRowHeight() - wavevizObject.getWaveYPadding();
-
+             i++, y += rowHeight) {
             var wf = model.getWaveform(i);
-            var signal = wf.getTimeSeries();
-
-            int startTime = timeFromXCoordinate(clipBounds.x);
-            int maxTime = model.getEndTime();
-            String prevValue = null;
-
-            RubyProc formatterProc = wavevizObject.getFormatters().get(wf.getDisplayFormat());
-            Ruby runtime = formatterProc.getRuntime();
-
-            for (int t = startTime, x = xCoordinateFromTime(startTime);
-                 x < clipBounds.x + clipBounds.width && t <= maxTime; ) {
-                TimeSpan tr = signal.getValue(t);
-                int rightX = x + pixelsOfTimeSpan(tr.getEndTime() - t + 1);
-                if (signal.getWidth() == 1) {
-                    if (tr.getValue().equals("0")) {
-                        g2.setColor(wavevizObject.getWaveLineColor());
-                        g2.drawLine(x, lowerY, rightX, lowerY);
-                        if (prevValue != null && prevValue.equals("1")) {
-                            g2.drawLine(x, upperY, x, lowerY);
-                        }
-                    } else if (tr.getValue().equals("1")) {
-                        g2.setColor(wavevizObject.getWaveHighValueFillColor());
-                        g2.fillRect(x, upperY, rightX - x, lowerY - upperY);
-                        g2.setColor(wavevizObject.getWaveLineColor());
-                        g2.drawLine(x, upperY, rightX, upperY);
-                        if (prevValue != null && prevValue.equals("0")) {
-                            g2.drawLine(x, upperY, x, lowerY);
-                        }
-                    } else {
-                        if (tr.getValue().equals("x"))
-                            g2.setColor(Color.red);
-                        else
-                            g2.setColor(Color.yellow);
-                        g2.drawLine(x, y + wavevizObject.getWaveRowHeight() / 2, rightX, y + wavevizObject.getWaveRowHeight() / 2);
-                    }
+            for (long tileIndex = firstTile; xCoordinateOfTile(tileIndex) < clipBounds.x + clipBounds.width; tileIndex++) {
+                var key = new WaveTileCache.Key(wf, pixelsPerUnitTime, wf.getDisplayFormat(), tileIndex);
+                var tile = tileCache.get(key);
+                if (tile != null) {
+                    g2.drawImage(tile.image, xCoordinateOfTile(tileIndex), y, WaveTileCache.TILE_WIDTH, rowHeight, null);
                 } else {
-                    g2.setColor(wavevizObject.getWaveLineColor());
-                    g2.drawLine(x, upperY, rightX, upperY);
-                    g2.drawLine(rightX, upperY, rightX, lowerY);
-                    g2.drawLine(x, lowerY, rightX, lowerY);
-
-                    if (rightX - x > 10 /* FIXME: calc threshold */) { // skip drawing text if width is too small
-                        g2.setColor(wavevizObject.getWaveTextColor());
-                        var metrics = g2.getFontMetrics();
-                        var origStr = tr.getValue();
-                        if (origStr != null) {
-                            var formattedStr = "";
-                            IRubyObject[] args = new IRubyObject[]{RubyString.newString(runtime, origStr)};
-                            formattedStr = formatterProc.call(runtime.getCurrentContext(), args).asJavaString();
-
-                            var trimmedStr = WavevizUtilities.getTextWithinWidth(metrics, formattedStr, "..", rightX - x - wavevizObject.getWaveLabelRightPadding() * 2);
-                            if (!trimmedStr.isEmpty())
-                                g2.drawString(trimmedStr, x + wavevizObject.getWaveLabelRightPadding(), y + wavevizObject.getWaveYPadding() + wavevizObject.getWaveFontHeight());
-                        }
-                    }
+                    if (!pendingTiles.containsKey(key))
+                        requestTile(key, wf, tileIndex, maxTime);
+                    paintPlaceholder(g2, xCoordinateOfTile(tileIndex), y);
                 }
+            }
+        }
+    }
 
-                if (pixelsPerUnitTime > 0) {
-                    x = rightX;
-                    t = tr.getEndTime() + 1;
-                } else {
-                    if (x == rightX)
-                        x += 1;
-                    else
-                        x = rightX;
-                    t = timeFromXCoordinate(x);
-                }
-                prevValue = tr.getValue();
+    private void paintPlaceholder(Graphics2D g2, int x, int y) {
+        int middleY = y + wavevizObject.getWaveRowHeight() / 2;
+        g2.setColor(Color.darkGray);
+        for (int i = x; i < x + WaveTileCache.TILE_WIDTH; i += 4)
+            g2.drawLine(i, middleY, i + 1, middleY);
+    }
+
+    private void requestTile(WaveTileCache.Key key, Waveform wf, long tileIndex, long maxTime) {
+        long tileX = tileIndex * WaveTileCache.TILE_WIDTH;
+        var painter = new RowPainter(wavevizObject, pixelsPerUnitTime, tileOriginTime, tileX, maxTime,
+                wavevizObject.getFormatters().get(wf.getDisplayFormat()));
+        long startTime = WavevizUtilities.timeOfXCoordinate(0, tileOriginTime, tileX, pixelsPerUnitTime);
+        long endTime = WavevizUtilities.timeOfXCoordinate(WaveTileCache.TILE_WIDTH, tileOriginTime, tileX, pixelsPerUnitTime);
+        var job = new TileJob(key, painter, wf.getTimeSeries(), tileIndex, startTime, endTime);
+        pendingTiles.put(key, job);
+        tilePainters.execute(job);
+    }
+
+    private void cancelTiles() {
+        pendingTiles.values().forEach(TileJob::cancel);
+        pendingTiles.clear();
+    }
+
+    // Jobs for tiles that have been scrolled out of view or painted at another zoom level are not
+    // worth finishing.
+    private void cancelInvisibleTiles() {
+        if (pendingTiles.isEmpty())
+            return;
+        var visibleRect = getVisibleRect();
+        int rowHeight = wavevizObject.getWaveRowHeight();
+        var visibleWaveforms = Collections.newSetFromMap(new IdentityHashMap<Waveform, Boolean>());
+        for (int i = visibleRect.y / rowHeight; i < model.getWaveformCount() && i * rowHeight < visibleRect.y + visibleRect.height; i++)
+            visibleWaveforms.add(model.getWaveform(i));
+        var iterator = pendingTiles.values().iterator();
+        while (iterator.hasNext()) {
+            var job = iterator.next();
+            var key = job.key;
+            long tileX = key.tileIndex * WaveTileCache.TILE_WIDTH - viewX;
+            if (key.pixelsPerUnitTime != pixelsPerUnitTime || !visibleWaveforms.contains(key.waveform)
+                    || tileX + WaveTileCache.TILE_WIDTH <= visibleRect.x || tileX >= visibleRect.x + visibleRect.width) {
+                job.cancel();
+                iterator.remove();
+            }
+        }
+    }
+
+    private final class TileJob implements Runnable {
+        private final WaveTileCache.Key key;
+        private final RowPainter painter;
+        private final TimeSeries signal;
+        private final long tileIndex;
+        private final long startTime;
+        private final long endTime;
+        private final double scale = tileScale;
+        private final int rowHeight = wavevizObject.getWaveRowHeight();
+        private final Font font = wavevizObject.getWaveMonospaceFont();
+        private volatile boolean cancelled = false;
+
+        TileJob(WaveTileCache.Key key, RowPainter painter, TimeSeries signal, long tileIndex, long startTime, long endTime) {
+            this.key = key;
+            this.painter = painter;
+            this.signal = signal;
+            this.tileIndex = tileIndex;
+            this.startTime = startTime;
+            this.endTime = endTime;
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public void run() {
+            if (cancelled)
+                return;
+            WaveTileCache.Tile tile = null;
+            try {
+                tile = paint();
+            } catch (RuntimeException e) {
+                // Left out of the cache, so that it is tried again on the next repaint.
+                System.out.printf("Failed to paint a tile of %s: %s\n", key.waveform.getName(), e.getMessage());
             }
+            var painted = tile;
+            SwingUtilities.invokeLater(() -> {
+                if (pendingTiles.get(key) != this)
+                    return;
+                pendingTiles.remove(key);
+                if (painted != null) {
+                    // Painted while more of the dump arrived, it is requested again by the repaint.
+                    if (!painted.isStale(signal))
+                        tileCache.put(key, painted);
+                    repaint(xCoordinateOfTile(tileIndex), 0, WaveTileCache.TILE_WIDTH, getHeight());
+                }
+            });
+        }
+
+        private WaveTileCache.Tile paint() {
+            // Read before painting, so that changes arriving meanwhile only make the tile look stale.
+            boolean loaded = signal.isLoaded();
+            long dataEndTime = signal.getEndTime();
+            var image = new BufferedImage((int) Math.ceil(WaveTileCache.TILE_WIDTH * scale), (int) Math.ceil(rowHeight * scale), BufferedImage.TYPE_INT_ARGB_PRE);
+            var g2 = image.createGraphics();
+            g2.scale(scale, scale);
+            g2.setClip(0, 0, WaveTileCache.TILE_WIDTH, rowHeight);
+            g2.setFont(font);
+            g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+                    RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            painter.paint(g2, signal, 0);
+            g2.dispose();
+            return new WaveTileCache.Tile(image, loaded, dataEndTime, startTime, endTime);
         }
     }
 
@@ -212,27 +292,82 @@ public class WaveformPanel extends JPanel implements Scrollable, MouseMotionList
         paintMarkers(g2);
     }
 
+    // Only the height is laid out, so zooming and loading more of a dump never revalidate.
     private void update() {
-        var panelSize = new Dimension(getRequiredWidth().orElse(Integer.MAX_VALUE), wavevizObject.getWaveRowHeight() * model.getWaveformCount());
-        setPreferredSize(panelSize);
-        scaleChangeListeners.forEach(listener -> listener.scaleChanged(pixelsPerUnitTime, panelSize.width));
-        revalidate();
+        int height = wavevizObject.getWaveRowHeight() * model.getWaveformCount();
+        if (!isPreferredSizeSet() || getPreferredSize().height != height) {
+            setPreferredSize(new Dimension(0, height));
+            revalidate();
+        }
+        setViewX(viewX);
+        fireViewChanged();
         repaint();
     }
 
+    private void fireViewChanged() {
+        viewChangeListeners.forEach(listener -> listener.viewChanged(pixelsPerUnitTime, viewX));
+    }
+
+    private void setViewX(long x) {
+        long newViewX = Math.max(0, Math.min(x, getMaxViewX()));
+        boolean changed = newViewX != viewX;
+        viewX = newViewX;
+        updateScrollBar();
+        if (changed) {
+            fireViewChanged();
+            repaint();
+        }
+    }
+
+    private void updateScrollBar() {
+        long maxViewX = getMaxViewX();
+        int width = Math.max(getWidth(), 1);
+        scrollUnit = (maxViewX + width) / (Integer.MAX_VALUE / 2) + 1;
+        int extent = (int) Math.max(1, width / scrollUnit);
+        int maxValue = (int) ((maxViewX + scrollUnit - 1) / scrollUnit);
+        updatingScrollBar = true;
+        horizontalScrollBar.setValues(viewX == maxViewX ? maxValue : (int) (viewX / scrollUnit), extent, 0, maxValue + extent);
+        horizontalScrollBar.setUnitIncrement((int) Math.max(1, getScrollableUnitIncrement(null, SwingConstants.HORIZONTAL, 1) / scrollUnit));
+        horizontalScrollBar.setBlockIncrement((int) Math.max(1, getScrollableBlockIncrement(null, SwingConstants.HORIZONTAL, 1) / scrollUnit));
+        updatingScrollBar = false;
+    }
+
+    private void scrollBarMoved() {
+        int value = horizontalScrollBar.getValue();
+        if (value >= horizontalScrollBar.getMaximum() - horizontalScrollBar.getVisibleAmount())
+            setViewX(getMaxViewX());
+        else
+            setViewX(value * scrollUnit);
+    }
+
+    public JScrollBar getHorizontalScrollBar() {
+        return horizontalScrollBar;
+    }
+
+    public void scrollHorizontally(int units) {
+        setViewX(viewX + (long) units * getScrollableUnitIncrement(null, SwingConstants.HORIZONTAL, units));
+    }
+
+    // Changes the zoom level, keeping the time at the left end of the view.
+    private void setScale(long pixelsPerUnitTime) {
+        long leftTime = timeFromXCoordinate(0);
+        this.pixelsPerUnitTime = pixelsPerUnitTime;
+        viewX = Math.max(0, WavevizUtilities.pixelsOfTimeSpan(leftTime - model.getStartTime(), pixelsPerUnitTime));
+    }
+
     public WaveViewModel getModel() {
         return model;
     }
 
     public void setModel(WaveViewModel model) {
         this.model = model;
+        tileCache.clear();
+        cancelTiles();
+        viewX = 0;
 
-        while (getRequiredWidth().isEmpty()) {
-            if (!zoomOut()) {
-                JOptionPane.showMessageDialog(this,
-                        "Waveform is too large to display.", "Error", JOptionPane.ERROR_MESSAGE);
+        while (!fitsVirtualWidth(pixelsPerUnitTime)) {
+            if (!zoomOut())
                 break;
-            }
         }
 
         update();
@@ -241,13 +376,14 @@ public class WaveformPanel extends JPanel implements Scrollable, MouseMotionList
     public boolean zoomIn() {
         boolean result = true;
         if (pixelsPerUnitTime < 0) {
-            if (pixelsPerUnitTime == -1)
-                pixelsPerUnitTime = ZOOM_POWER;
+            long next = pixelsPerUnitTime == -1 ? ZOOM_POWER : pixelsPerUnitTime / ZOOM_POWER;
+            if (fitsVirtualWidth(next))
+                setScale(next);
             else
-                pixelsPerUnitTime /= ZOOM_POWER;
+                result = false;
         } else if (pixelsPerUnitTime > 0) {
-            if (pixelsPerUnitTime * ZOOM_POWER <= wavevizObject.getWaveMaxPixelsPerUnitTime())
-                pixelsPerUnitTime *= ZOOM_POWER;
+            if (pixelsPerUnitTime * ZOOM_POWER <= wavevizObject.getWaveMaxPixelsPerUnitTime() && fitsVirtualWidth(pixelsPerUnitTime * ZOOM_POWER))
+                setScale(pixelsPerUnitTime * ZOOM_POWER);
             else
                 result = false;
         }
@@ -255,19 +391,19 @@ public class WaveformPanel extends JPanel implements Scrollable, MouseMotionList
         return result;
     }
 
+    // Stops once the whole model fits in the minimum width, however long it is.
     public boolean zoomOut() {
         boolean result = true;
         if (pixelsPerUnitTime < 0) {
-            var maxTime = model.getEndTime();
-            if (xCoordinateFromTime(maxTime) > wavevizObject.getWaveMinWholeWidth())
-                pixelsPerUnitTime *= ZOOM_POWER;
+            if (getVirtualWidth() > wavevizObject.getWaveMinWholeWidth() && pixelsPerUnitTime >= Long.MIN_VALUE / ZOOM_POWER)
+                setScale(pixelsPerUnitTime * ZOOM_POWER);
             else
                 result = false;
         } else if (pixelsPerUnitTime > 0) {
             if (pixelsPerUnitTime == 1)
-                pixelsPerUnitTime = -ZOOM_POWER;
+                setScale(-ZOOM_POWER);
             else
-                pixelsPerUnitTime /= ZOOM_POWER;
+                setScale(pixelsPerUnitTime / ZOOM_POWER);
         }
         update();
         return result;
@@ -281,7 +417,7 @@ public class WaveformPanel extends JPanel implements Scrollable, MouseMotionList
     @Override
     public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
         if (orientation == SwingConstants.HORIZONTAL) {
-            return Math.max(5, pixelsPerUnitTime);
+            return WavevizUtilities.clampToInt(Math.max(5, pixelsPerUnitTime));
         } else {
             return wavevizObject.getWaveRowHeight();
         }
@@ -290,7 +426,7 @@ public class WaveformPanel extends JPanel implements Scrollable, MouseMotionList
     @Override
     public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
         if (orientation == SwingConstants.HORIZONTAL) {
-            return Math.max(50, pixelsPerUnitTime * 5);
+            return WavevizUtilities.clampToInt(Math.max(50, pixelsPerUnitTime * 5));
         } else {
             return wavevizObject.getWaveRowHeight() * 5;
         }
@@ -298,7 +434,7 @@ public class WaveformPanel extends JPanel implements Scrollable, MouseMotionList
 
     @Override
     public boolean getScrollableTracksViewportWidth() {
-        return false;
+        return true;
     }
 
     @Override
@@ -319,7 +455,7 @@ public class WaveformPanel extends JPanel implements Scrollable, MouseMotionList
 
     @Override
     public void mouseClicked(MouseEvent e) {
-        int t = timeFromXCoordinateUsingRound(e.getX());
+        long t = timeFromXCoordinateUsingRound(e.getX());
         if (t <= model.getEndTime()) {
             model.getCursor().setTime(t);
         }
@@ -355,18 +491,42 @@ public class WaveformPanel extends JPanel implements Scrollable, MouseMotionList
         }
     }
 
-    public void addScaleChangeListener(ScaleChangeListener listener) {
-        scaleChangeListeners.add(listener);
+    public void addViewChangeListener(ViewChangeListener listener) {
+        viewChangeListeners.add(listener);
     }
 
     @Override
     public void propertyChange(PropertyChangeEvent evt) {
+        invalidateTiles(evt);
         update();
     }
 
-    public void scrollToTime(int t) {
-        var x = xCoordinateFromTime(t);
-        scrollRectToVisible(new Rectangle(Math.max(x - getVisibleRect().width / 2, 0), getY(), getVisibleRect().width, 1));
+    // Drops the tiles the change affects. Focus, selection and markers are painted over the tiles,
+    // and the display format is part of the key, so those never drop any.
+    // Jobs in flight may be painting from what changed, so they are cancelled along with the tiles.
+    private void invalidateTiles(PropertyChangeEvent evt) {
+        if (evt.getSource() instanceof Waveviz) {
+            if (Waveviz.FORMATTER_PROPERTY.equals(evt.getPropertyName()))
+                tileCache.removeDisplayFormat((String) evt.getNewValue());
+            else
+                tileCache.clear();
+            cancelTiles();
+        } else if (WaveViewModel.WAVEFORM_DATA_PROPERTY.equals(evt.getPropertyName())) {
+            // Jobs in flight are left to finish; their tiles are checked the same way as they arrive.
+            tileCache.removeStale();
+        } else if (evt.getOldValue() instanceof Waveform) {
+            tileCache.removeWaveform((Waveform) evt.getOldValue());
+            cancelTiles();
+        }
+    }
+
+    public void scrollToTime(long t) {
+        setViewX(WavevizUtilities.pixelsOfTimeSpan(t - model.getStartTime(), pixelsPerUnitTime) - getWidth() / 2);
+    }
+
+    // Brings the newest time to the right edge of the view.
+    public void scrollToEnd() {
+        setViewX(getMaxViewX());
     }
 
     private class PopupListener extends MouseAdapter {
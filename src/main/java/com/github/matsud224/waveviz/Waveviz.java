@@ -9,6 +9,7 @@ import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.TreeMap;
 
 public class Waveviz {
     private final PropertyChangeSupport pcs = new PropertyChangeSupport(this);
@@ -35,13 +36,15 @@ public class Waveviz {
     private Font waveNormalFont = new Font("Arial", Font.PLAIN, waveFontHeight);
     private Font waveMonospaceFont = new Font("Courier", Font.PLAIN, waveFontHeight - 2);
 
-    private HashMap<String, RubyProc> formatters = new HashMap<>();
+    private HashMap<String, ValueFormatter> formatters = new HashMap<>();
     private HashSet<RubyClass> decoders = new HashSet<>();
 
     public static final String WAVEFORM_PROPERTY = "WAVEFORM_PROPERTY";
+    public static final String FORMATTER_PROPERTY = "FORMATTER_PROPERTY";
 
     public Waveviz(WaveViewModel waveViewModel) {
         this.waveViewModel = waveViewModel;
+        BuiltinFormatters.registerAll(formatters);
     }
 
     public void addPropertyChangeListener(PropertyChangeListener listener) {
@@ -61,16 +64,39 @@ public class Waveviz {
         this.pcs.firePropertyChange(WAVEFORM_PROPERTY, null, null);
     }
 
+    // Ruby blocks are assumed to be pure functions of the value, and their results are memoized.
     public void registerFormatter(String name, RubyProc proc) {
-        formatters.put(name, proc);
+        registerFormatter(name, true, proc);
+    }
+
+    // Blocks that may format the same value differently from one call to the next pass pure = false.
+    public void registerFormatter(String name, boolean pure, RubyProc proc) {
+        ValueFormatter formatter = new RubyFormatter(proc);
+        registerFormatter(name, pure ? new MemoizingFormatter(formatter) : formatter);
+    }
+
+    public void registerFormatter(String name, ValueFormatter formatter) {
+        formatters.put(name, formatter);
         System.out.printf("Formatter \"%s\" is registered.\n", name);
-        this.pcs.firePropertyChange(WAVEFORM_PROPERTY, null, null);
+        this.pcs.firePropertyChange(FORMATTER_PROPERTY, null, name);
     }
 
-    public HashMap<String, RubyProc> getFormatters() {
+    public HashMap<String, ValueFormatter> getFormatters() {
         return formatters;
     }
 
+    public void printFormatterStatistics() {
+        for (var entry : new TreeMap<>(formatters).entrySet()) {
+            if (entry.getValue() instanceof MemoizingFormatter) {
+                var formatter = (MemoizingFormatter) entry.getValue();
+                System.out.printf("%s: %d hits, %d misses, %d values memoized\n", entry.getKey(),
+                        formatter.getHits(), formatter.getMisses(), formatter.size());
+            } else {
+                System.out.printf("%s: not memoized\n", entry.getKey());
+            }
+        }
+    }
+
     public void registerDecoder(RubyClass klass) {
         Ruby runtime = klass.getRuntime();
         IRubyObject description = klass.instance_variable_get(runtime.getCurrentContext(), RubyString.newString(runtime, "@description"));
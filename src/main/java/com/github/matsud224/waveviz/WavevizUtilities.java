@@ -1,20 +1,11 @@
 package com.github.matsud224.waveviz;
 
 import java.awt.*;
-import java.util.Optional;
+import java.math.BigDecimal;
 
 public class WavevizUtilities {
     public static String getTextWithinWidth(FontMetrics metrics, String text, String continuationStr, int width) {
-        if (metrics.stringWidth(text) <= width) {
-            return text;
-        } else {
-            for (int i = text.length() - 1; i >= 1; i--) {
-                String testText = text.substring(0, i) + continuationStr;
-                if (metrics.stringWidth(testText) <= width)
-                    return testText;
-            }
-            return "";
-        }
+        return LabelFitter.of(metrics).fit(text, continuationStr, width);
     }
 
     public static String convertVerilogBinaryToHex(String s) {
@@ -36,19 +27,86 @@ public class WavevizUtilities {
         return hexStrBuilder.toString();
     }
 
-    static Optional<Integer> safeMultiply(int left, int right) throws ArithmeticException {
-        if (right > 0 ? left > Integer.MAX_VALUE / right || left < Integer.MIN_VALUE / right :
-                (right < -1 ? left > Integer.MIN_VALUE / right || left < Integer.MAX_VALUE / right :
-                        right == -1 && left == Integer.MIN_VALUE)) {
-            return Optional.empty();
+    // Variable types, of VCD and FST dumps, whose values are real numbers.
+    public static boolean isRealType(String type) {
+        switch (type) {
+            case "REAL":
+            case "REALTIME":
+            case "REAL_PARAMETER":
+            case "SHORTREAL":
+                return true;
+            default:
+                return false;
         }
-        return Optional.of(left * right);
     }
 
-    static Optional<Integer> safeDivide(int left, int right) throws ArithmeticException {
-        if ((left == Integer.MIN_VALUE) && (right == -1)) {
-            return Optional.empty();
+    // Accepts the nan and inf spellings of C printf as well. Anything else unreadable is NaN.
+    public static double parseReal(String s) {
+        try {
+            return Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            switch (s.toLowerCase()) {
+                case "inf":
+                case "+inf":
+                    return Double.POSITIVE_INFINITY;
+                case "-inf":
+                    return Double.NEGATIVE_INFINITY;
+                default:
+                    return Double.NaN;
+            }
         }
-        return Optional.of(left / right);
+    }
+
+    // Integral values are printed without a fraction, as most simulators dump them, and others of
+    // moderate magnitude in plain decimals rather than Double.toString's exponent notation. Every
+    // backend shows reals in this form, whatever text the dump had.
+    public static String formatReal(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15)
+            return Long.toString((long) value);
+        double magnitude = Math.abs(value);
+        if (magnitude >= 1e-9 && magnitude < 1e15)
+            return BigDecimal.valueOf(value).toPlainString();
+        return Double.toString(value);
+    }
+
+    // Scale conversions shared by the waveform panel and the time bar, where a negative
+    // pixelsPerUnitTime means that many time units per pixel. Pixel counts saturate instead of overflowing.
+    static long pixelsOfTimeSpan(long span, long pixelsPerUnitTime) {
+        if (pixelsPerUnitTime < 0)
+            return span / -pixelsPerUnitTime;
+        if (span > Long.MAX_VALUE / pixelsPerUnitTime)
+            return Long.MAX_VALUE;
+        if (span < Long.MIN_VALUE / pixelsPerUnitTime)
+            return Long.MIN_VALUE;
+        return span * pixelsPerUnitTime;
+    }
+
+    static long timeSpanOfPixels(long pixels, long pixelsPerUnitTime) {
+        if (pixelsPerUnitTime > 0)
+            return pixels / pixelsPerUnitTime;
+        if (pixels > Long.MAX_VALUE / -pixelsPerUnitTime)
+            return Long.MAX_VALUE;
+        if (pixels < Long.MIN_VALUE / -pixelsPerUnitTime)
+            return Long.MIN_VALUE;
+        return pixels * -pixelsPerUnitTime;
+    }
+
+    // Coordinates where x = 0 lies originX pixels after originTime. originX is never negative.
+    static long timeOfXCoordinate(int x, long originTime, long originX, long pixelsPerUnitTime) {
+        long span = timeSpanOfPixels(originX + x, pixelsPerUnitTime);
+        if (span > 0 && originTime > Long.MAX_VALUE - span)
+            return Long.MAX_VALUE;
+        if (span < 0 && originTime < Long.MIN_VALUE - span)
+            return Long.MIN_VALUE;
+        return span + originTime;
+    }
+
+    static int xCoordinateOfTime(long time, long originTime, long originX, long pixelsPerUnitTime) {
+        long pixels = pixelsOfTimeSpan(time - originTime, pixelsPerUnitTime);
+        return clampToInt(pixels < Long.MIN_VALUE + originX ? Long.MIN_VALUE : pixels - originX);
+    }
+
+    static int clampToInt(long value) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value));
     }
 }
@@ -177,6 +177,7 @@ module Waveviz
     end
 
     def decode(name, input)
+      input = input.transform_values { |v| v.respond_to?(:new_cursor) ? CursorSignal.new(v) : v }
       input.each do |k, v|
         if v.is_a?(Array)
           puts "Error: input signal '#{k}' is array."
@@ -269,6 +270,87 @@ module Waveviz
     end
   end
 
+  # Input signal backed by a Java TimeSeries, with the interface of Signal above. Decoders mostly
+  # move forward in time, so value_at and next_edge step a ChangeCursor on from where the previous
+  # call left it, and only search again for long jumps.
+  class CursorSignal
+    MAX_STEPS = 16
+
+    # Value returned by value_at, telling whether the signal changes at that time.
+    class EdgeValue < String
+      def initialize(value, edge)
+        super(value)
+        @edge = edge
+      end
+
+      def edge?
+        @edge
+      end
+
+      def pos_edge?
+        @edge && self == '0'
+      end
+
+      def neg_edge?
+        @edge && self == '1'
+      end
+    end
+
+    def initialize(series)
+      @series = series
+      @cursor = series.new_cursor
+      @last = series.new_cursor
+    end
+
+    def last_time
+      @last.seek(@series.end_time)
+      @last.has_value ? @last.start_time : @series.start_time
+    end
+
+    def width
+      @series.width
+    end
+
+    def unknown_value
+      'x' * width
+    end
+
+    def value_at(time)
+      move_to(time)
+      return EdgeValue.new(unknown_value, false) if !@cursor.has_value || @cursor.start_time > time
+
+      edge = @cursor.start_time == time
+      value = if !edge
+                @cursor.value
+              elsif @cursor.prev
+                @cursor.value
+              else
+                unknown_value
+              end
+      EdgeValue.new(value, edge)
+    end
+
+    def next_edge(time)
+      move_to(time)
+      return nil unless @cursor.has_value
+      return @cursor.start_time if @cursor.start_time > time
+
+      @cursor.next ? @cursor.start_time : nil
+    end
+
+    private
+
+    # Leaves the cursor on the change held at the time, or on the first change if there is none yet.
+    def move_to(time)
+      if @cursor.has_value && @cursor.start_time <= time
+        steps = 0
+        steps += 1 while @cursor.end_time < time && steps < MAX_STEPS && @cursor.next
+        return if @cursor.end_time >= time || steps < MAX_STEPS
+      end
+      @cursor.seek(time)
+    end
+  end
+
   class SignalStore
     def initialize
       @signals = {}
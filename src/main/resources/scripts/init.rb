@@ -10,11 +10,11 @@ def signal_to_int(value, base)
   end
 end
 
-Waveviz.register_formatter('Binary') { |value| value }
-Waveviz.register_formatter('Octal') { |value| signal_to_int(value, 8) }
-Waveviz.register_formatter('Decimal') { |value| signal_to_int(value, 10) }
-Waveviz.register_formatter('Hexadecimal') { |value| signal_to_int(value, 16) }
-Waveviz.register_formatter('Popcnt') { |value| value.count('1').to_s }
+# Binary, Octal, Decimal, Hexadecimal and Popcnt are built in. Registering a block under one of
+# those names replaces the built-in formatter.
+# What a block returns is remembered for each value. Blocks that are not pure functions of the
+# value opt out with Waveviz.register_formatter('Name', false) { |value| ... }, and
+# Waveviz.print_formatter_statistics shows how often the remembered results were used.
 
 Waveviz.register_formatter('Sample-state') do |value|
   states = %w[WAIT PREP EXEC PAUSE WRITE]